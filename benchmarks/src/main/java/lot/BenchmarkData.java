@@ -0,0 +1,114 @@
+package lot;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Database filled with generated flights, passengers and bookings, shared by database benchmarks.
+ * <p> With <code>jdbc</code> storage connects to database given by <code>lot.db.url</code> system property, which has to point to a dedicated
+ * benchmark schema (its name has to contain "bench"), because all its flights and passengers are deleted before seeding.
+ * <code>memory</code> storage does not need a database server.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkData {
+    static final String[] AIRPORTS = {"WAW", "KRK", "GDN", "WRO", "POZ", "KTW", "LHR", "CDG", "FRA", "AMS",
+            "JFK", "ORD", "LAX", "DXB", "SIN", "NRT", "VNO", "BOM", "SYD", "MIA"};
+    static final int SEATS_PER_FLIGHT = 180;
+
+    @Param({"1000", "10000"})
+    public int flights;
+
+    @Param({"50"})
+    public int passengersPerFlight;
+
+    @Param({"jdbc", "memory"})
+    public String storage;
+
+    List<String> flightNumbers = new ArrayList<>();
+    List<String> routes = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void seed() throws SQLException {
+        if (storage.equals("memory")) {
+            new Database(new InMemoryStorage());
+        } else {
+            String url = System.getProperty("lot.db.url", "");
+            if (!url.contains("bench")) throw new IllegalStateException("Set -Dlot.db.url to a dedicated benchmark schema, e.g. jdbc:mysql://localhost:3306/lot_bench");
+
+            new Database();
+            try (PooledConnection connection = Database.getConnectionPool().borrow();
+                 Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM bookings");
+                statement.executeUpdate("DELETE FROM flights");
+                statement.executeUpdate("DELETE FROM passengers");
+            }
+        }
+        Database.setFlightCache(new FlightCache(0, 0));
+
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        List<Flight> newFlights = new ArrayList<>(flights);
+        for (int i = 0; i < flights; i++) {
+            String origin = AIRPORTS[random.nextInt(AIRPORTS.length)];
+            String destination = AIRPORTS[random.nextInt(AIRPORTS.length)];
+            if (origin.equals(destination)) destination = AIRPORTS[(indexOf(origin) + 1) % AIRPORTS.length];
+            // Two-letter airline codes from AA, 9999 flight numbers each
+            String flightNumber = "" + (char) ('A' + i / 9999 / 26 % 26) + (char) ('A' + i / 9999 % 26) + (i % 9999 + 1);
+            long departure = now + random.nextInt(30 * 24) * 3_600_000L;
+            newFlights.add(Flight.unsaved(flightNumber, origin, destination, new Timestamp(departure),
+                    new Timestamp(departure + (1 + random.nextInt(12)) * 3_600_000L), SEATS_PER_FLIGHT));
+            flightNumbers.add(flightNumber);
+            routes.add(origin + "-" + destination);
+        }
+        Database.addFlights(newFlights);
+
+        int passengerCount = passengersPerFlight * 10;
+        List<Passenger> newPassengers = new ArrayList<>(passengerCount);
+        for (int i = 0; i < passengerCount; i++) {
+            newPassengers.add(Passenger.unsaved("Name" + i, "Surname" + i, "+48600" + String.format("%06d", i)));
+        }
+        Database.addPassengers(newPassengers);
+
+        for (Flight flight : newFlights) {
+            Map<Passenger, Integer> bookings = new LinkedHashMap<>();
+            int first = random.nextInt(passengerCount);
+            for (int seat = 1; seat <= passengersPerFlight; seat++) {
+                bookings.put(newPassengers.get((first + seat) % passengerCount), seat);
+            }
+            Database.addBookings(flight, bookings);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void disconnect() {
+        new Database().close();
+    }
+
+    String randomFlightNumber(Random random) {
+        return flightNumbers.get(random.nextInt(flightNumbers.size()));
+    }
+
+    String randomRoute(Random random) {
+        return routes.get(random.nextInt(routes.size()));
+    }
+
+    private static int indexOf(String airport) {
+        for (int i = 0; i < AIRPORTS.length; i++) {
+            if (AIRPORTS[i].equals(airport)) return i;
+        }
+        return -1;
+    }
+}
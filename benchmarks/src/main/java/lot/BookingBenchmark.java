@@ -0,0 +1,58 @@
+package lot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Booking hot path: {@link Flight#assignPassenger(Passenger, int)} followed by {@link Flight#removePassenger(Passenger)},
+ * and in-memory seat lookups of a loaded flight
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingBenchmark {
+    private Flight flight;
+    private Passenger passenger;
+    private int freeSeat;
+    private final Random random = new Random(11);
+
+    @Setup
+    public void setUp(BenchmarkData data) {
+        Database.setLazyLoading(false);
+        // Each thread books its own flight, so threads do not compete for the same seat
+        flight = Database.getFlight(data.randomFlightNumber(new Random(Thread.currentThread().threadId())));
+        passenger = Passenger.unsaved("Benchmark", "Passenger" + Thread.currentThread().threadId(), "+48600000000");
+        Database.addPassengers(List.of(passenger));
+        freeSeat = flight.getFreeSeatsList().get(0);
+    }
+
+    @Benchmark
+    public int assignAndRemovePassenger() {
+        int bookingId = flight.assignPassenger(passenger, freeSeat);
+        flight.removePassenger(passenger);
+        return bookingId;
+    }
+
+    @Benchmark
+    public void seatLookup(Blackhole blackhole) {
+        int seatNo = 1 + random.nextInt(flight.getMaxNumberOfSeats());
+        blackhole.consume(flight.isSeatOccupied(seatNo));
+        blackhole.consume(flight.getSeatOf(passenger));
+    }
+}
@@ -0,0 +1,82 @@
+package lot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route, departure window and free seats scan over {@link FlightColumns} compared with filtering flight objects, does not need a database
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ColumnScanBenchmark {
+    @Param({"100000", "1000000"})
+    public int flights;
+
+    private final List<Flight> objects = new ArrayList<>();
+    private FlightColumns columns;
+    private FlightColumns parallelColumns;
+    private Timestamp from;
+    private Timestamp to;
+    private FlightFilter filter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        for (int i = 1; i <= flights; i++) {
+            long departure = now + random.nextInt(365 * 24) * 3_600_000L;
+            objects.add(new Flight(i, "LO" + (i % 10000), BenchmarkData.AIRPORTS[random.nextInt(BenchmarkData.AIRPORTS.length)],
+                    BenchmarkData.AIRPORTS[random.nextInt(BenchmarkData.AIRPORTS.length)], new Timestamp(departure),
+                    new Timestamp(departure + (1 + random.nextInt(12)) * 3_600_000L), random.nextInt(BenchmarkData.SEATS_PER_FLIGHT), BenchmarkData.SEATS_PER_FLIGHT));
+        }
+        columns = new FlightColumns();
+        columns.load(objects.stream());
+        parallelColumns = new FlightColumns(true);
+        parallelColumns.load(objects.stream());
+
+        from = new Timestamp(now);
+        to = new Timestamp(now + 90L * 24 * 3_600_000L);
+        filter = new FlightFilter().route("WAW-LAX", true).departingBetween(from, to).minimumSeats(100);
+    }
+
+    @Benchmark
+    public int scanObjects() {
+        int count = 0;
+        for (Flight flight : objects) {
+            String route = flight.getRoute();
+            if ((route.equals("WAW-LAX") || route.equals("LAX-WAW")) && !flight.getDepartureTime().before(from)
+                    && !flight.getDepartureTime().after(to) && flight.getAvailableSeats() >= 100) count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int[] scanColumns() {
+        return columns.find(filter);
+    }
+
+    @Benchmark
+    public int[] scanColumnsParallel() {
+        return parallelColumns.find(filter);
+    }
+}
@@ -0,0 +1,58 @@
+package lot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read queries of {@link Database}, with flight cache disabled so every call reaches the database
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+    @Param({"false", "true"})
+    public boolean lazyLoading;
+
+    private final Random random = new Random(7);
+
+    @Setup
+    public void setUp() {
+        Database.setLazyLoading(lazyLoading);
+    }
+
+    @Benchmark
+    public Flight getFlight(BenchmarkData data) {
+        return Database.getFlight(data.randomFlightNumber(random));
+    }
+
+    @Benchmark
+    public List<Flight> getAllFlights() {
+        return Database.getAllFlights();
+    }
+
+    @Benchmark
+    public List<Flight> getAllFlightsOnRoute(BenchmarkData data) {
+        return Database.getAllFlightsOnRoute(data.randomRoute(random), true);
+    }
+
+    @Benchmark
+    public List<Flight> getFlightsDepartingInNextHours() {
+        return Database.getFlightsDepartingInNextHours(24);
+    }
+}
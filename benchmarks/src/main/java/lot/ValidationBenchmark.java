@@ -0,0 +1,41 @@
+package lot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flight number and phone number validators, does not need a database
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+    @Param({"LO777", "BA4567", "L0777X"})
+    public String flightNumber;
+
+    @Param({"+12025550101", "(202) 555-0101", "not a number"})
+    public String phoneNumber;
+
+    @Benchmark
+    public boolean isFlightNumberCorrect() {
+        return Flight.isFlightNumberCorrect(flightNumber);
+    }
+
+    @Benchmark
+    public boolean isPhoneNumberCorrect() {
+        return Passenger.isPhoneNumberCorrect(phoneNumber);
+    }
+}
@@ -0,0 +1,68 @@
+package lot;
+
+/**
+ * Packs 3-letter IATA airport codes into ints, 5 bits per letter, so they can be used as compact keys of in-memory indexes.
+ * <p> Route of two packed codes fits in a single int as well.
+ */
+public final class AirportCode {
+    /**
+     * Returned for codes which are not 3 letters A-Z
+     */
+    public static final int INVALID = -1;
+
+    private static final int BITS_PER_LETTER = 5;
+    private static final int BITS_PER_CODE = 3 * BITS_PER_LETTER;
+    private static final int LETTER_MASK = (1 << BITS_PER_LETTER) - 1;
+    private static final int CODE_MASK = (1 << BITS_PER_CODE) - 1;
+
+    private AirportCode() {
+    }
+
+    /**
+     *
+     * @param code IATA airport code, upper case (e.g. WAW)
+     * @return Packed code, {@link #INVALID} if code is not 3 letters A-Z
+     */
+    public static int pack(String code) {
+        if (code == null || code.length() != 3) return INVALID;
+        int packed = 0;
+        for (int i = 0; i < 3; i++) {
+            char c = code.charAt(i);
+            if (c < 'A' || c > 'Z') return INVALID;
+            packed = (packed << BITS_PER_LETTER) | (c - 'A' + 1);
+        }
+        return packed;
+    }
+
+    /**
+     *
+     * @param packed Code packed with {@link #pack(String)}
+     * @return IATA airport code
+     */
+    public static String unpack(int packed) {
+        char[] letters = new char[3];
+        for (int i = 2; i >= 0; i--) {
+            letters[i] = (char) ('A' - 1 + (packed & LETTER_MASK));
+            packed >>>= BITS_PER_LETTER;
+        }
+        return new String(letters);
+    }
+
+    /**
+     *
+     * @param origin Packed code of origin airport
+     * @param destination Packed code of destination airport
+     * @return Packed route, different for each direction
+     */
+    public static int route(int origin, int destination) {
+        return (origin << BITS_PER_CODE) | destination;
+    }
+
+    public static int routeOrigin(int route) {
+        return route >>> BITS_PER_CODE;
+    }
+
+    public static int routeDestination(int route) {
+        return route & CODE_MASK;
+    }
+}
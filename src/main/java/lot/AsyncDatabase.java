@@ -0,0 +1,171 @@
+package lot;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous facade of {@link Database}. Every query runs on its own virtual thread,
+ * so independent queries overlap and caller waits only as long as the slowest of them.
+ * <p> Number of queries running at once is bounded (by default to connection pool size),
+ * remaining ones wait for a permit without holding a pooled connection or a carrier thread.
+ * <p> Example:
+ * <pre>
+ * CompletableFuture&lt;Flight&gt; flight = async.getFlight("LO1");
+ * CompletableFuture&lt;Passenger&gt; passenger = async.getPassenger("James", "Smith");
+ * CompletableFuture.allOf(flight, passenger).join();
+ * </pre>
+ */
+public class AsyncDatabase implements AutoCloseable {
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+
+    /**
+     * Creates facade running at most as many queries at once as there are connections in connection pool,
+     * or as there are processors if database does not use connection pool
+     */
+    public AsyncDatabase() {
+        this(Database.getStorage() instanceof JdbcStorage jdbc ? jdbc.getConnectionPool().getMaxSize() : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     *
+     * @param maxConcurrentQueries Maximum number of queries running at once
+     * @throws IllegalArgumentException if number of queries is not positive
+     */
+    public AsyncDatabase(int maxConcurrentQueries) throws IllegalArgumentException {
+        if (maxConcurrentQueries <= 0) throw new IllegalArgumentException("Incorrect number of concurrent queries");
+        this.permits = new Semaphore(maxConcurrentQueries, true);
+    }
+
+    /**
+     * Runs blocking query on a new virtual thread once a permit is available
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                return query.get();
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    /**
+     * @see Database#doesFlightExists(String)
+     */
+    public CompletableFuture<Boolean> doesFlightExists(String flightNumber) {
+        return submit(() -> Database.doesFlightExists(flightNumber));
+    }
+
+    /**
+     * @see Database#getFlight(String)
+     */
+    public CompletableFuture<Flight> getFlight(String flightNumber) {
+        return submit(() -> Database.getFlight(flightNumber));
+    }
+
+    /**
+     * @see Database#getPassengersOnFlight(int)
+     */
+    public CompletableFuture<Map<Passenger, Integer>> getPassengersOnFlight(int id) {
+        return submit(() -> Database.getPassengersOnFlight(id));
+    }
+
+    /**
+     * @see Database#getAllPassengerFlights(Passenger)
+     */
+    public CompletableFuture<Map<Flight, Integer>> getAllPassengerFlights(Passenger passenger) {
+        return submit(() -> Database.getAllPassengerFlights(passenger));
+    }
+
+    /**
+     * @see Database#doesPassengerExists(String, String)
+     */
+    public CompletableFuture<Boolean> doesPassengerExists(String name, String surname) {
+        return submit(() -> Database.doesPassengerExists(name, surname));
+    }
+
+    /**
+     * @see Database#getPassenger(String, String)
+     */
+    public CompletableFuture<Passenger> getPassenger(String name, String surname) {
+        return submit(() -> Database.getPassenger(name, surname));
+    }
+
+    /**
+     * @see Database#getAllFlights()
+     */
+    public CompletableFuture<List<Flight>> getAllFlights() {
+        return submit(Database::getAllFlights);
+    }
+
+    /**
+     * @see Database#getAllFlightsOnRoute(String, boolean)
+     */
+    public CompletableFuture<List<Flight>> getAllFlightsOnRoute(String route, boolean includeOppositeDirection) {
+        return submit(() -> Database.getAllFlightsOnRoute(route, includeOppositeDirection));
+    }
+
+    /**
+     * @see Database#getFlightsDepartingInNextHours(int)
+     */
+    public CompletableFuture<List<Flight>> getFlightsDepartingInNextHours(int hours) {
+        return submit(() -> Database.getFlightsDepartingInNextHours(hours));
+    }
+
+    /**
+     * @see Database#getFlightsWithAvailableSeats(int)
+     */
+    public CompletableFuture<List<Flight>> getFlightsWithAvailableSeats(int minimumSeats) {
+        return submit(() -> Database.getFlightsWithAvailableSeats(minimumSeats));
+    }
+
+    /**
+     * @see Database#getFlightsPage(FlightFilter, Flight, int)
+     */
+    public CompletableFuture<List<Flight>> getFlightsPage(FlightFilter filter, Flight after, int pageSize) {
+        return submit(() -> Database.getFlightsPage(filter, after, pageSize));
+    }
+
+    /**
+     * @see Database#getAllPassengers()
+     */
+    public CompletableFuture<List<Passenger>> getAllPassengers() {
+        return submit(Database::getAllPassengers);
+    }
+
+    /**
+     * @see Database#getPassengersPage(Passenger, int)
+     */
+    public CompletableFuture<List<Passenger>> getPassengersPage(Passenger after, int pageSize) {
+        return submit(() -> Database.getPassengersPage(after, pageSize));
+    }
+
+    /**
+     * @see Database#bookSeat(Passenger, Flight, int)
+     */
+    public CompletableFuture<BookingResult> bookSeat(Passenger passenger, Flight flight, int seatNo) {
+        return submit(() -> Database.bookSeat(passenger, flight, seatNo));
+    }
+
+    /**
+     * @see Database#cancelBooking(Passenger, Flight)
+     */
+    public CompletableFuture<Boolean> cancelBooking(Passenger passenger, Flight flight) {
+        return submit(() -> Database.cancelBooking(passenger, flight));
+    }
+
+    /**
+     * Stops accepting new queries and waits for running ones to finish
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,105 @@
+package lot;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index of flights bucketed by number of available seats, answering threshold and top-K queries without database.
+ * Buckets are ordered by number of seats, flights in a bucket by departure time.
+ * <p> Kept up to date as {@link FlightListener} of changes made through {@link Database}, so each booking, cancellation
+ * or seats update moves a single flight between neighbouring buckets.
+ * Returned flights are new objects created without passengers, which are loaded from database only if needed.
+ * <p> Reads do not lock, updates are serialized. Thread-safe.
+ * @see Database#setAvailabilityIndex(AvailabilityIndex)
+ */
+public class AvailabilityIndex implements FlightListener {
+    private final ConcurrentSkipListMap<Integer, ConcurrentSkipListMap<IndexedFlight.Key, IndexedFlight>> bySeats = new ConcurrentSkipListMap<>();
+    private final Map<String, IndexedFlight> byFlightNumber = new ConcurrentHashMap<>();
+
+    /**
+     * Adds flights to index, e.g. all flights when index is created
+     * @param flights Flights with database ids, closed by caller
+     */
+    public void load(Stream<Flight> flights) {
+        flights.forEach(this::flightSaved);
+    }
+
+    /**
+     *
+     * @param minimumSeats Minimum number of available seats
+     * @return Flights with at least <code>minimumSeats</code> available seats, most available first
+     */
+    public List<Flight> getFlightsWithAvailableSeats(int minimumSeats) {
+        return scan(minimumSeats, Integer.MAX_VALUE);
+    }
+
+    /**
+     *
+     * @param count Maximum number of returned flights
+     * @return Up to <code>count</code> flights with most available seats, most available first
+     */
+    public List<Flight> getFlightsWithMostAvailableSeats(int count) {
+        return scan(Integer.MIN_VALUE, count);
+    }
+
+    public int size() {
+        return byFlightNumber.size();
+    }
+
+    @Override
+    public synchronized void flightSaved(Flight flight) {
+        if (flight.getDbID() <= 0) return;
+        replace(byFlightNumber.get(flight.getFlightNumber()), IndexedFlight.of(flight));
+    }
+
+    @Override
+    public synchronized void flightDeleted(String flightNumber) {
+        IndexedFlight entry = byFlightNumber.remove(flightNumber.toUpperCase());
+        if (entry != null) remove(entry);
+    }
+
+    @Override
+    public synchronized void seatsChanged(Flight flight, int availableSeatsDelta) {
+        IndexedFlight entry = byFlightNumber.get(flight.getFlightNumber());
+        if (entry == null) return;
+        replace(entry, entry.withAvailableSeats(entry.availableSeats() + availableSeatsDelta));
+    }
+
+    /**
+     * Walks buckets from the fullest one down to <code>minimumSeats</code>
+     */
+    private List<Flight> scan(int minimumSeats, int limit) {
+        List<Flight> flights = new ArrayList<>();
+        // Flight moved to another bucket during scan can be met twice, it is returned once
+        Set<Integer> seen = new HashSet<>();
+        for (ConcurrentSkipListMap<IndexedFlight.Key, IndexedFlight> bucket : bySeats.tailMap(minimumSeats, true).descendingMap().values()) {
+            for (IndexedFlight entry : bucket.values()) {
+                if (flights.size() >= limit) return flights;
+                if (seen.add(entry.id())) flights.add(entry.toFlight());
+            }
+        }
+        return flights;
+    }
+
+    /**
+     * New entry is added before old one is removed, so flight does not disappear from concurrent scans
+     */
+    private void replace(IndexedFlight oldEntry, IndexedFlight newEntry) {
+        bySeats.computeIfAbsent(newEntry.availableSeats(), seats -> new ConcurrentSkipListMap<>()).put(newEntry.key(), newEntry);
+        if (oldEntry != null && (oldEntry.availableSeats() != newEntry.availableSeats() || !oldEntry.key().equals(newEntry.key()))) remove(oldEntry);
+        byFlightNumber.put(newEntry.flightNumber(), newEntry);
+    }
+
+    private void remove(IndexedFlight entry) {
+        ConcurrentSkipListMap<IndexedFlight.Key, IndexedFlight> bucket = bySeats.get(entry.availableSeats());
+        if (bucket == null) return;
+        bucket.remove(entry.key());
+        if (bucket.isEmpty()) bySeats.remove(entry.availableSeats(), bucket);
+    }
+}
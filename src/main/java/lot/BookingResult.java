@@ -0,0 +1,47 @@
+package lot;
+
+/**
+ * Result of booking a seat with {@link Database#bookSeat(Passenger, Flight, int)}
+ */
+public class BookingResult {
+    public enum Status {
+        /** Seat booked, booking id available */
+        BOOKED,
+        /** Seat is already booked by another passenger */
+        SEAT_TAKEN,
+        /** Passenger already has a seat on this flight */
+        ALREADY_BOOKED,
+        /** No seats available on flight */
+        FLIGHT_FULL,
+        /** Flight is not stored in database, e.g. it was deleted */
+        FLIGHT_NOT_FOUND
+    }
+
+    private final Status status;
+    private final int bookingId;
+
+    BookingResult(Status status, int bookingId) {
+        this.status = status;
+        this.bookingId = bookingId;
+    }
+
+    static BookingResult failed(Status status) {
+        return new BookingResult(status, -1);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     *
+     * @return booking id from database if booked <p> -1 otherwise
+     */
+    public int getBookingId() {
+        return bookingId;
+    }
+
+    public boolean isBooked() {
+        return status == Status.BOOKED;
+    }
+}
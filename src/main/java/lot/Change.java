@@ -0,0 +1,41 @@
+package lot;
+
+/**
+ * Row of <code>change_log</code> table: single mutation made by one of application instances
+ * @param sequence Number of change, increasing in order of writes
+ * @param type What was changed
+ * @param flightId Database id of changed flight, 0 if not known
+ * @param flightNumber IATA flight number of changed flight, <code>null</code> for passenger changes
+ * @param passengerId Database id of changed passenger, 0 for flight changes
+ * @param nodeId Id of storage instance which made the change
+ */
+record Change(long sequence, Type type, int flightId, String flightNumber, int passengerId, String nodeId) {
+
+    enum Type {
+        /**
+         * Flight was added or its info was updated
+         */
+        FLIGHT_SAVED,
+        FLIGHT_DELETED,
+        /**
+         * Passengers of flight were changed, together with number of available seats
+         */
+        BOOKINGS_CHANGED,
+        /**
+         * Passenger was added or its phone number was updated
+         */
+        PASSENGER_SAVED,
+        /**
+         * Passenger was deleted together with all its bookings
+         */
+        PASSENGER_DELETED
+    }
+
+    static Change ofFlight(Type type, int flightId, String flightNumber) {
+        return new Change(0, type, flightId, flightNumber, 0, null);
+    }
+
+    static Change ofPassenger(Type type, int passengerId) {
+        return new Change(0, type, 0, null, passengerId, null);
+    }
+}
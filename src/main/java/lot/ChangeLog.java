@@ -0,0 +1,36 @@
+package lot;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Change log read by {@link ChangeLogPoller}, written by {@link JdbcStorage} with change log enabled
+ * @see JdbcStorage#getChangeLog()
+ */
+interface ChangeLog {
+
+    /**
+     * Reads changes made by all application instances, including this one
+     * @param afterSequence Sequence number of the last already read change
+     * @param limit Maximum number of returned changes
+     * @return Changes in order of sequence numbers
+     */
+    List<Change> readChanges(long afterSequence, int limit);
+
+    /**
+     *
+     * @return Id of this storage instance, recorded with its changes
+     */
+    String getNodeId();
+
+    /**
+     *
+     * @return Current state of flights with given ids, without passengers, ids of deleted flights are skipped
+     */
+    List<Flight> getFlightsByIds(Collection<Integer> flightIds);
+
+    /**
+     * Reloads shared passenger objects changed by other application instances, forgets deleted passengers
+     */
+    void refreshPassengers(Collection<Integer> savedIds, Collection<Integer> deletedIds);
+}
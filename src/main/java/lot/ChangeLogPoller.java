@@ -0,0 +1,186 @@
+package lot;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps in-memory state of this application instance consistent with changes made by other instances sharing the same database.
+ * <p> Background thread reads new entries of change log every poll interval, in batches of {@value #BATCH_SIZE}, and applies them:
+ * changed flights are reloaded with one query per batch, evicted from flight cache and passed to {@link FlightListener}s (e.g. indexes),
+ * changed passengers are reloaded into shared passenger objects. Changes are written only by instances using {@link JdbcStorage} with change log enabled.
+ * <p> Sequence numbers are assigned when changes are written, but transactions can commit out of that order,
+ * so poller waits up to {@value #GAP_TIMEOUT_MILLIS} ms for a missing number before it assumes its transaction was rolled back.
+ * <p> Poller should be started before caches and indexes are filled, so changes made meanwhile are not missed.
+ */
+public class ChangeLogPoller implements AutoCloseable {
+    public static final long DEFAULT_POLL_INTERVAL_MILLIS = 1000;
+    public static final int BATCH_SIZE = 1000;
+    public static final long GAP_TIMEOUT_MILLIS = 10_000;
+
+    private final ChangeLog changeLog;
+    private final long pollIntervalMillis;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService executor;
+    /**
+     * All changes up to this sequence number are applied
+     */
+    private long lastSequence;
+    /**
+     * Changes after last sequence which are already applied, read again while waiting for missing number before them
+     */
+    private final Set<Long> appliedAhead = new HashSet<>();
+    private long gapSince;
+    private long appliedChanges;
+
+    /**
+     * Creates poller applying changes not committed yet, every {@value #DEFAULT_POLL_INTERVAL_MILLIS} ms.
+     * Changes written in the last {@value #GAP_TIMEOUT_MILLIS} ms are applied again, as some of them may still be uncommitted.
+     * @param storage Storage used by database
+     * @see JdbcStorage#getSettledChangeSequence()
+     */
+    public ChangeLogPoller(JdbcStorage storage) {
+        this(storage, storage.getSettledChangeSequence(), DEFAULT_POLL_INTERVAL_MILLIS);
+    }
+
+    /**
+     *
+     * @param storage Storage used by database
+     * @param afterSequence Sequence number of the last change already reflected in memory
+     * @param pollIntervalMillis Time between polls, upper bound of lag of applied changes when they are polled faster than written
+     * @throws IllegalArgumentException if poll interval is not positive
+     */
+    public ChangeLogPoller(JdbcStorage storage, long afterSequence, long pollIntervalMillis) throws IllegalArgumentException {
+        this(storage.getChangeLog(), afterSequence, pollIntervalMillis, System::currentTimeMillis);
+    }
+
+    /**
+     *
+     * @param clock Current time in milliseconds, measuring gap timeout
+     */
+    ChangeLogPoller(ChangeLog changeLog, long afterSequence, long pollIntervalMillis, LongSupplier clock) throws IllegalArgumentException {
+        if (pollIntervalMillis <= 0) throw new IllegalArgumentException("Incorrect poll interval");
+        this.changeLog = changeLog;
+        this.lastSequence = afterSequence;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.clock = clock;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "change-log-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts polling in background
+     * @return this poller
+     */
+    public ChangeLogPoller start() {
+        executor.scheduleWithFixedDelay(this::pollQuietly, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * Reads and applies one batch of new changes, on calling thread
+     * @return Number of applied changes
+     */
+    public synchronized int pollNow() {
+        List<Change> changes = changeLog.readChanges(lastSequence, BATCH_SIZE);
+        List<Change> fresh = new ArrayList<>(changes.size());
+        for (Change change : changes) {
+            if (!appliedAhead.contains(change.sequence())) fresh.add(change);
+        }
+        apply(fresh);
+        for (Change change : fresh) {
+            appliedAhead.add(change.sequence());
+        }
+        appliedChanges += fresh.size();
+        advance(changes);
+        return fresh.size();
+    }
+
+    /**
+     *
+     * @return Sequence number of the last change, all changes up to which are applied
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     *
+     * @return Number of changes applied since poller was created
+     */
+    public synchronized long getAppliedChanges() {
+        return appliedChanges;
+    }
+
+    /**
+     * Stops polling
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void pollQuietly() {
+        try {
+            // Backlog is drained at once instead of one batch per interval
+            while (pollNow() == BATCH_SIZE) {
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void apply(List<Change> changes) {
+        Set<Integer> savedFlightIds = new LinkedHashSet<>();
+        Set<String> deletedFlightNumbers = new LinkedHashSet<>();
+        Set<Integer> savedPassengerIds = new LinkedHashSet<>();
+        Set<Integer> deletedPassengerIds = new LinkedHashSet<>();
+        for (Change change : changes) {
+            boolean local = changeLog.getNodeId().equals(change.nodeId());
+            switch (change.type()) {
+                // Own flight changes are reloaded too, so state read from database overrides local seat deltas which raced with other instances
+                case FLIGHT_SAVED, BOOKINGS_CHANGED -> savedFlightIds.add(change.flightId());
+                case FLIGHT_DELETED -> {
+                    if (!local) deletedFlightNumbers.add(change.flightNumber());
+                }
+                case PASSENGER_SAVED -> {
+                    if (!local) savedPassengerIds.add(change.passengerId());
+                }
+                case PASSENGER_DELETED -> {
+                    if (!local) deletedPassengerIds.add(change.passengerId());
+                }
+            }
+        }
+
+        if (!savedPassengerIds.isEmpty() || !deletedPassengerIds.isEmpty()) changeLog.refreshPassengers(savedPassengerIds, deletedPassengerIds);
+        // Flights are read by database while no booking is between its write and notification
+        Database.applyChanges(deletedFlightNumbers, () -> savedFlightIds.isEmpty() ? List.of() : changeLog.getFlightsByIds(savedFlightIds),
+                !deletedPassengerIds.isEmpty());
+    }
+
+    /**
+     * Moves last sequence over contiguous applied changes, skipping missing numbers only after gap timeout
+     */
+    private void advance(List<Change> changes) {
+        for (Change change : changes) {
+            if (change.sequence() != lastSequence + 1) {
+                long now = clock.getAsLong();
+                if (gapSince == 0) gapSince = now;
+                if (now - gapSince < GAP_TIMEOUT_MILLIS) return;
+                System.out.println("Change log entries " + (lastSequence + 1) + " - " + (change.sequence() - 1) + " were not committed in " + GAP_TIMEOUT_MILLIS + " ms, skipped");
+            }
+            gapSince = 0;
+            appliedAhead.remove(change.sequence());
+            lastSequence = change.sequence();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package lot;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe pool of database connections.
+ * <p> Connections are borrowed with {@link #borrow()} and returned to the pool by closing borrowed {@link PooledConnection}.
+ */
+public class ConnectionPool implements AutoCloseable {
+    public static final int DEFAULT_MIN_SIZE = 2;
+    public static final int DEFAULT_MAX_SIZE = 10;
+    public static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 5_000;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 300_000;
+    private static final long VALIDATION_INTERVAL_MILLIS = 30_000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean started = false;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates pool with default sizes and timeouts
+     * @param url JDBC url of database
+     * @param username Database user
+     * @param password Database user password
+     */
+    public ConnectionPool(String url, String username, String password) {
+        this(url, username, password, DEFAULT_MIN_SIZE, DEFAULT_MAX_SIZE, DEFAULT_BORROW_TIMEOUT_MILLIS, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Connections are opened and idle connection eviction starts on first {@link #borrow()}
+     * @param url JDBC url of database
+     * @param username Database user
+     * @param password Database user password
+     * @param minSize Number of connections kept open even when idle
+     * @param maxSize Maximum number of connections open at the same time
+     * @param borrowTimeoutMillis How long {@link #borrow()} waits for free connection before failing
+     * @param idleTimeoutMillis How long connection above <code>minSize</code> may stay idle before being closed
+     * @throws IllegalArgumentException if sizes or timeouts are incorrect
+     */
+    public ConnectionPool(String url, String username, String password, int minSize, int maxSize, long borrowTimeoutMillis, long idleTimeoutMillis) throws IllegalArgumentException {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) throw new IllegalArgumentException("Incorrect pool size");
+        if (borrowTimeoutMillis < 0 || idleTimeoutMillis <= 0) throw new IllegalArgumentException("Incorrect pool timeout");
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens <code>minSize</code> connections and schedules eviction of idle ones.
+     * Done on first borrow instead of in constructor, so pool is not handed to connections and evictor thread before it is fully constructed.
+     * @throws SQLException if pool is closed or connection could not be opened, in which case next borrow tries again
+     */
+    private synchronized void start() throws SQLException {
+        if (started) return;
+        if (closed) throw new SQLException("Connection pool is closed");
+        while (totalConnections.get() < minSize) {
+            idleConnections.addFirst(openConnection());
+        }
+        long period = Math.max(idleTimeoutMillis / 2, 1_000);
+        evictor.scheduleWithFixedDelay(this::evictIdleConnections, period, period, TimeUnit.MILLISECONDS);
+        started = true;
+    }
+
+    /**
+     * Borrows connection from pool, waiting at most borrow timeout for one to become free
+     * @return Connection which has to be closed to return it to the pool
+     * @throws SQLException if pool is closed, timeout elapsed or new connection could not be opened
+     */
+    public PooledConnection borrow() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+        if (!started) start();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + borrowTimeoutMillis + " ms waiting for database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for database connection", e);
+        }
+
+        try {
+            PooledConnection pooledConnection;
+            while ((pooledConnection = idleConnections.pollFirst()) != null) {
+                if (isValid(pooledConnection)) break;
+                discard(pooledConnection);
+            }
+            if (pooledConnection == null) pooledConnection = openConnection();
+            pooledConnection.markBorrowed();
+            return pooledConnection;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns connection to pool, used by {@link PooledConnection#close()}
+     */
+    void release(PooledConnection pooledConnection) {
+        try {
+            Connection connection = pooledConnection.getConnection();
+            if (closed || connection.isClosed()) {
+                discard(pooledConnection);
+            } else {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                pooledConnection.markUsed();
+                idleConnections.addFirst(pooledConnection);
+            }
+        } catch (SQLException e) {
+            discard(pooledConnection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        PooledConnection pooledConnection = new PooledConnection(this, DriverManager.getConnection(url, username, password));
+        totalConnections.incrementAndGet();
+        return pooledConnection;
+    }
+
+    /**
+     * Connections which were idle for a long time are validated before being handed out
+     */
+    private boolean isValid(PooledConnection pooledConnection) {
+        if (System.currentTimeMillis() - pooledConnection.getLastUsed() < VALIDATION_INTERVAL_MILLIS) return true;
+        try {
+            return pooledConnection.getConnection().isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void discard(PooledConnection pooledConnection) {
+        totalConnections.decrementAndGet();
+        try {
+            pooledConnection.getConnection().close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Closes connections idle for longer than idle timeout, keeping at least <code>minSize</code> connections open
+     */
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        // Least recently used connections are at the end of the deque
+        Iterator<PooledConnection> iterator = idleConnections.descendingIterator();
+        while (iterator.hasNext() && totalConnections.get() > minSize) {
+            PooledConnection pooledConnection = iterator.next();
+            if (now - pooledConnection.getLastUsed() > idleTimeoutMillis && idleConnections.removeLastOccurrence(pooledConnection)) {
+                discard(pooledConnection);
+            }
+        }
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     *
+     * @return Number of open connections, both borrowed and idle
+     */
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    public int getIdleConnections() {
+        return idleConnections.size();
+    }
+
+    void recordStatementCacheHit() {
+        statementCacheHits.increment();
+    }
+
+    void recordStatementCacheMiss() {
+        statementCacheMisses.increment();
+    }
+
+    /**
+     *
+     * @return Number of statements reused from per-connection statement caches
+     */
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    /**
+     *
+     * @return Number of statements which had to be prepared because they were not cached
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    /**
+     * Closes all idle connections, borrowed connections are closed when returned
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledConnection pooledConnection;
+        while ((pooledConnection = idleConnections.pollFirst()) != null) {
+            discard(pooledConnection);
+        }
+    }
+}
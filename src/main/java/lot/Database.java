@@ -0,0 +1,916 @@
+package lot;
+
+import lot.QueryMetrics.Operation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Entry point of all persistence operations, delegating them to the storage engine the database was created with
+ * ({@link JdbcStorage} by default, or e.g. {@link InMemoryStorage}).
+ * <p> Validates arguments and keeps flight cache, so every storage engine behaves the same way.
+ */
+public class Database {
+    // Connection settings can be overridden with -Dlot.db.url, -Dlot.db.username and -Dlot.db.password (e.g. to run benchmarks on a separate schema)
+    private static final String URL = withConnectionProperties(System.getProperty("lot.db.url", "jdbc:mysql://localhost:3306/lot"));
+    private static final String USERNAME = System.getProperty("lot.db.username", "root");
+    private static final String PASSWORD = System.getProperty("lot.db.password", "");
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+    private static volatile Storage storage;
+    private static volatile boolean lazyLoading = false;
+    private static volatile FlightCache flightCache = new FlightCache();
+    private static volatile QueryMetrics metrics = new QueryMetrics();
+    private static final List<FlightListener> flightListeners = new CopyOnWriteArrayList<>();
+    // Held by every write from storage write until listeners are notified about it, see addLoadedFlightListener:
+    // for reading by writes notifying what they wrote, exclusively by updates notifying state read back from storage
+    private static final ReentrantReadWriteLock seatChanges = new ReentrantReadWriteLock();
+    private static volatile DepartureIndex departureIndex;
+    private static volatile RouteIndex routeIndex;
+    private static volatile AvailabilityIndex availabilityIndex;
+
+    /**
+     * Connects to database using connection pool with default settings.
+     * If database is already connected (to any storage), existing storage is reused.
+     */
+    public Database() {
+        synchronized (Database.class) {
+            if (storage == null) {
+                storage = new JdbcStorage(new ConnectionPool(URL, USERNAME, PASSWORD));
+                System.out.println("Database connected successfully");
+            }
+        }
+    }
+
+    /**
+     * Connects to database using given connection pool, replacing (and closing) previously used storage
+     * @param connectionPool Connection pool shared by all database operations
+     */
+    public Database(ConnectionPool connectionPool) {
+        this(new JdbcStorage(connectionPool));
+    }
+
+    /**
+     * Uses given storage engine, replacing (and closing) previously used one
+     * @param newStorage Storage engine used by all database operations, e.g. <code>new InMemoryStorage()</code>
+     */
+    public Database(Storage newStorage) {
+        synchronized (Database.class) {
+            if (storage != null && storage != newStorage) {
+                if (!(storage instanceof JdbcStorage jdbc && newStorage instanceof JdbcStorage newJdbc
+                        && jdbc.getConnectionPool() == newJdbc.getConnectionPool())) storage.close();
+            }
+            storage = newStorage;
+            flightCache.clear();
+            System.out.println("Database connected successfully");
+        }
+    }
+
+    /**
+     *
+     * @return Storage engine used by all database operations
+     * @throws IllegalStateException if database is not connected
+     */
+    public static Storage getStorage() throws IllegalStateException {
+        Storage current = storage;
+        if (current == null) throw new IllegalStateException("Database is not connected");
+        return current;
+    }
+
+    /**
+     *
+     * @return Connection pool used by all database operations
+     * @throws IllegalStateException if database is not connected or does not use {@link JdbcStorage}
+     */
+    public static ConnectionPool getConnectionPool() throws IllegalStateException {
+        if (!(getStorage() instanceof JdbcStorage jdbc)) throw new IllegalStateException("Database does not use connection pool");
+        return jdbc.getConnectionPool();
+    }
+
+    /**
+     * Switches between eager and lazy loading of flight passengers.
+     * In lazy mode flights are returned without passengers, which are loaded with a single query the first time they are needed.
+     * @param lazy <code>true</code> to load passengers on demand <p> <code>false</code> to load them together with flights (default)
+     */
+    public static void setLazyLoading(boolean lazy) {
+        lazyLoading = lazy;
+    }
+
+    public static boolean isLazyLoading() {
+        return lazyLoading;
+    }
+
+    /**
+     * Replaces cache used by {@link #getFlight(String)} and {@link #doesFlightExists(String)}
+     * @param cache Flight cache, <code>new FlightCache(0, 0)</code> disables caching
+     */
+    public static void setFlightCache(FlightCache cache) {
+        flightCache = cache;
+    }
+
+    public static FlightCache getFlightCache() {
+        return flightCache;
+    }
+
+    /**
+     * Replaces metrics recorded for every operation
+     * @param queryMetrics Query metrics, e.g. with different slow query threshold
+     */
+    public static void setQueryMetrics(QueryMetrics queryMetrics) {
+        metrics = queryMetrics;
+    }
+
+    public static QueryMetrics getQueryMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Registers listener notified about every flight added, updated, deleted or booked through database
+     * @param listener Flight listener, e.g. in-memory index
+     */
+    public static void addFlightListener(FlightListener listener) {
+        flightListeners.add(listener);
+    }
+
+    public static void removeFlightListener(FlightListener listener) {
+        flightListeners.remove(listener);
+    }
+
+    /**
+     * Fills listener with all flights from database and then registers it, like indexes set with e.g. {@link #setDepartureIndex(DepartureIndex)}
+     * @param listener Flight listener which is not registered yet, e.g. {@link FlightColumns}
+     */
+    public static void addLoadedFlightListener(FlightListener listener) {
+        addLoadedFlightListener(listener, null);
+    }
+
+    /**
+     * Fills listener with all flights from snapshot or database and then registers it.
+     * <p> Flights changed while listener is filled may reach it both in loaded rows and in notifications, in any order,
+     * so instead of being applied, their changes are collected and these flights are read again before listener is registered.
+     * Every write holds seat changes lock from storage write until its listeners are notified, so no write is in progress
+     * while listener is registered: each change is either in the reread row or notified to the listener, never lost and never both.
+     * @param listener Flight listener which is not registered yet, e.g. {@link FlightColumns}
+     * @param snapshot Loaded snapshot, <code>null</code> to fill listener from database
+     */
+    public static void addLoadedFlightListener(FlightListener listener, Snapshot snapshot) {
+        ChangedFlights changed = new ChangedFlights();
+        addFlightListener(changed);
+        try {
+            try (Stream<Flight> flights = snapshot != null ? snapshot.getFlights().stream() : streamAllFlights()) {
+                flights.forEach(listener::flightSaved);
+            }
+            // Most changes are reread without blocking writers, so the last reread under lock is short
+            changed.reload(listener);
+            seatChanges.writeLock().lock();
+            try {
+                changed.reload(listener);
+                addFlightListener(listener);
+            } finally {
+                seatChanges.writeLock().unlock();
+            }
+        } finally {
+            removeFlightListener(changed);
+        }
+    }
+
+    /**
+     * Collects numbers of flights changed while listener is filled, see {@link #addLoadedFlightListener(FlightListener, Snapshot)}
+     */
+    private static class ChangedFlights implements FlightListener {
+        private final Set<String> flightNumbers = new HashSet<>();
+
+        @Override
+        public synchronized void flightSaved(Flight flight) {
+            flightNumbers.add(flight.getFlightNumber());
+        }
+
+        @Override
+        public synchronized void flightDeleted(String flightNumber) {
+            flightNumbers.add(flightNumber.toUpperCase());
+        }
+
+        @Override
+        public synchronized void seatsChanged(Flight flight, int availableSeatsDelta) {
+            flightNumbers.add(flight.getFlightNumber());
+        }
+
+        /**
+         * Passes current state of flights changed so far to listener
+         */
+        void reload(FlightListener listener) {
+            List<String> changed;
+            synchronized (this) {
+                changed = new ArrayList<>(flightNumbers);
+                flightNumbers.clear();
+            }
+            for (String flightNumber : changed) {
+                Flight flight = metrics.measure(Operation.GET_FLIGHT, () -> getStorage().getFlight(flightNumber), Database::countOf);
+                if (flight != null) {
+                    listener.flightSaved(flight);
+                } else {
+                    listener.flightDeleted(flightNumber);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces index answering {@link #getFlightsDepartingInNextHours(int)} without database queries.
+     * New index is filled with all flights from database and then kept up to date with changes made through database.
+     * @param index Departure index, <code>null</code> to query database again
+     */
+    public static void setDepartureIndex(DepartureIndex index) {
+        synchronized (Database.class) {
+            departureIndex = replaceIndex(departureIndex, index, null);
+        }
+    }
+
+    /**
+     * Replaces index like {@link #setDepartureIndex(DepartureIndex)}, filling it with flights from snapshot instead of database
+     * @param snapshot Loaded snapshot, changes made after it should be applied by {@link ChangeLogPoller}
+     */
+    public static void setDepartureIndex(DepartureIndex index, Snapshot snapshot) {
+        synchronized (Database.class) {
+            departureIndex = replaceIndex(departureIndex, index, snapshot);
+        }
+    }
+
+    public static DepartureIndex getDepartureIndex() {
+        return departureIndex;
+    }
+
+    /**
+     * Replaces index answering {@link #getAllFlightsOnRoute(String, boolean)} and {@link #getAllFlightsFromAirport(String)} without database queries.
+     * New index is filled with all flights from database and then kept up to date with changes made through database.
+     * @param index Route index, <code>null</code> to query database again
+     */
+    public static void setRouteIndex(RouteIndex index) {
+        synchronized (Database.class) {
+            routeIndex = replaceIndex(routeIndex, index, null);
+        }
+    }
+
+    /**
+     * Replaces index like {@link #setRouteIndex(RouteIndex)}, filling it with flights from snapshot instead of database
+     * @param snapshot Loaded snapshot, changes made after it should be applied by {@link ChangeLogPoller}
+     */
+    public static void setRouteIndex(RouteIndex index, Snapshot snapshot) {
+        synchronized (Database.class) {
+            routeIndex = replaceIndex(routeIndex, index, snapshot);
+        }
+    }
+
+    public static RouteIndex getRouteIndex() {
+        return routeIndex;
+    }
+
+    /**
+     * Replaces index answering {@link #getFlightsWithAvailableSeats(int)} and {@link #getFlightsWithMostAvailableSeats(int)} without database queries.
+     * New index is filled with all flights from database and then kept up to date with changes made through database.
+     * @param index Availability index, <code>null</code> to query database again
+     */
+    public static void setAvailabilityIndex(AvailabilityIndex index) {
+        synchronized (Database.class) {
+            availabilityIndex = replaceIndex(availabilityIndex, index, null);
+        }
+    }
+
+    /**
+     * Replaces index like {@link #setAvailabilityIndex(AvailabilityIndex)}, filling it with flights from snapshot instead of database
+     * @param snapshot Loaded snapshot, changes made after it should be applied by {@link ChangeLogPoller}
+     */
+    public static void setAvailabilityIndex(AvailabilityIndex index, Snapshot snapshot) {
+        synchronized (Database.class) {
+            availabilityIndex = replaceIndex(availabilityIndex, index, snapshot);
+        }
+    }
+
+    public static AvailabilityIndex getAvailabilityIndex() {
+        return availabilityIndex;
+    }
+
+    /**
+     * Fills new index with all flights from snapshot or database, registers it and unregisters old index.
+     * Old index keeps answering queries until new one is filled. Has to be called holding lock of Database class.
+     * @return New index
+     */
+    private static <T extends FlightListener> T replaceIndex(T oldIndex, T index, Snapshot snapshot) {
+        if (index != null) addLoadedFlightListener(index, snapshot);
+        if (oldIndex != null) removeFlightListener(oldIndex);
+        return index;
+    }
+
+    /**
+     * Applies changes made by other application instances, read from change log by {@link ChangeLogPoller}
+     * @param deletedFlightNumbers Numbers of deleted flights
+     * @param savedFlights Reads current state of added or changed flights, including number of available seats.
+     *                     Called holding seat changes lock exclusively, so the state matches seat changes notified so far.
+     * @param passengersDeleted Were any passengers deleted, together with their bookings
+     */
+    static void applyChanges(Collection<String> deletedFlightNumbers, Supplier<List<Flight>> savedFlights, boolean passengersDeleted) {
+        seatChanges.writeLock().lock();
+        try {
+            if (passengersDeleted) flightCache.clear();
+            // Deletions go first, flight number of deleted flight could have been reused by a saved one
+            for (String flightNumber : deletedFlightNumbers) {
+                flightCache.invalidate(flightNumber);
+                flightDeleted(flightNumber);
+            }
+            for (Flight flight : savedFlights.get()) {
+                flightCache.invalidate(flight.getFlightNumber());
+                flightSaved(flight);
+            }
+        } finally {
+            seatChanges.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Notifies listeners about updated flights with their state read back from storage, as number of available seats
+     * of updated objects can be stale. Has to be called holding seat changes lock exclusively,
+     * so no booking is between its write and its notification and the read state matches seat changes notified so far.
+     */
+    private static void updatedFlightsSaved(Collection<Flight> flights) {
+        if (flightListeners.isEmpty()) return;
+        List<Integer> ids = new ArrayList<>(flights.size());
+        for (Flight flight : flights) {
+            ids.add(flight.getDbID());
+        }
+        for (Flight stored : getStorage().getFlightsByIds(ids)) {
+            flightSaved(stored);
+        }
+    }
+
+    private static void flightSaved(Flight flight) {
+        for (FlightListener listener : flightListeners) {
+            listener.flightSaved(flight);
+        }
+    }
+
+    private static void flightDeleted(String flightNumber) {
+        for (FlightListener listener : flightListeners) {
+            listener.flightDeleted(flightNumber);
+        }
+    }
+
+    private static void seatsChanged(Flight flight, int availableSeatsDelta) {
+        for (FlightListener listener : flightListeners) {
+            listener.seatsChanged(flight, availableSeatsDelta);
+        }
+    }
+
+    /**
+     *
+     * @param flightNumber IATA flight number
+     * @return <code>true</code> if flight of given number exists in database <p> <code>false</code> if not
+     */
+    public static boolean doesFlightExists(String flightNumber) {
+        if (flightCache.get(flightNumber) != null) return true;
+        return metrics.measure(Operation.DOES_FLIGHT_EXISTS, () -> getStorage().doesFlightExists(flightNumber), Database::countOf);
+    }
+
+    /**
+     *
+     * @param flightNumber IATA flight number
+     * @return Flight object if such exists in database (served from flight cache if cached) <p> null otherwise
+     */
+    public static Flight getFlight(String flightNumber) {
+        if (!Flight.isFlightNumberCorrect(flightNumber.toUpperCase())) throw new IllegalArgumentException("Flight number is incorrect");
+        FlightCache cache = flightCache;
+        Flight cached = cache.get(flightNumber);
+        if (cached != null) return cached;
+        long generation = cache.getGeneration(flightNumber);
+        Flight flight = metrics.measure(Operation.GET_FLIGHT, () -> getStorage().getFlight(flightNumber), Database::countOf);
+        if (flight != null) {
+            cache.put(flight, generation);
+        } else {
+            System.out.println("Flight not found");
+        }
+        return flight;
+    }
+
+    /**
+     *
+     * @param id Flight database id
+     * @return Map: key -> Passenger object <p> value -> booked seat number
+     */
+    public static Map<Passenger, Integer> getPassengersOnFlight(int id) {
+        return metrics.measure(Operation.GET_PASSENGERS_ON_FLIGHT, () -> getStorage().getPassengersOnFlight(id), Map::size);
+    }
+
+    /**
+     * Loads passengers of many flights at once, with set-based queries instead of one query per flight
+     * @param flightIds Flight database ids
+     * @return Map: key -> Flight database id <p> value -> Map: key -> Passenger object, value -> booked seat number
+     */
+    public static Map<Integer, Map<Passenger, Integer>> getPassengersOnFlights(Collection<Integer> flightIds) {
+        return metrics.measure(Operation.GET_PASSENGERS_ON_FLIGHTS, () -> getStorage().getPassengersOnFlights(flightIds), Database::countOfNested);
+    }
+
+    /**
+     *
+     * @param passenger Passenger object
+     * @return Map: key -> Flight object <p> value -> booked seat number
+     */
+    public static Map<Flight, Integer> getAllPassengerFlights(Passenger passenger) {
+        return metrics.measure(Operation.GET_ALL_PASSENGER_FLIGHTS, () -> getStorage().getAllPassengerFlights(passenger), Map::size);
+    }
+
+    /**
+     * Loads bookings of many passengers at once, with set-based queries instead of one query per passenger.
+     * Flight booked by several of given passengers is represented by a single Flight object shared by their maps.
+     * @param passengers Passenger objects, e.g. a group or all passengers of a flight
+     * @return Map: key -> Passenger object <p> value -> Map: key -> Flight object, value -> booked seat number (empty if passenger has no bookings)
+     */
+    public static Map<Passenger, Map<Flight, Integer>> getAllPassengersFlights(Collection<Passenger> passengers) {
+        return metrics.measure(Operation.GET_ALL_PASSENGERS_FLIGHTS, () -> getStorage().getAllPassengersFlights(passengers), Database::countOfNested);
+    }
+
+    /**
+     *
+     * @param name Passenger name
+     * @param surname Passenger surname
+     * @return <code>true</code> if passenger exists in database <p> <code>false</code> otherwise
+     */
+    public static boolean doesPassengerExists(String name, String surname) {
+        return metrics.measure(Operation.DOES_PASSENGER_EXISTS, () -> getStorage().doesPassengerExists(name, surname), Database::countOf);
+    }
+
+    /**
+     *
+     * @param name Searched passenger name
+     * @param surname Searched passenger surname
+     * @return Passenger object if found <p> <code>null</code> if passenger not found
+     */
+    public static Passenger getPassenger(String name, String surname) {
+        Passenger passenger = metrics.measure(Operation.GET_PASSENGER, () -> getStorage().getPassenger(name, surname), Database::countOf);
+        if (passenger == null) System.out.println("Passenger not found");
+        return passenger;
+    }
+
+    /**
+     * Deletes passenger from database
+     * @param id Passenger database id
+     */
+    public static void deletePassengerFromDatabase(int id) {
+        // Bookings of passenger are deleted by cascade, so cached manifests may contain the passenger
+        try {
+            metrics.measure(Operation.DELETE_PASSENGER, () -> getStorage().deletePassenger(id));
+        } finally {
+            flightCache.clear();
+        }
+    }
+
+    /**
+     * Add flight to database
+     * @param flight Flight object
+     * @return Added flight database id
+     */
+    public static int addFlightToDatabase(Flight flight) {
+        seatChanges.readLock().lock();
+        try {
+            int id = metrics.measure(Operation.ADD_FLIGHT, () -> getStorage().addFlight(flight), Database::countOfId);
+            if (id > 0) {
+                flight.setDbID(id);
+                flightSaved(flight);
+            }
+            return id;
+        } finally {
+            seatChanges.readLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes flight from database
+     * @param flightNumber IATA flight number
+     */
+    public static void deleteFlightFromDatabase(String flightNumber) {
+        seatChanges.readLock().lock();
+        try {
+            try {
+                metrics.measure(Operation.DELETE_FLIGHT, () -> getStorage().deleteFlight(flightNumber));
+            } finally {
+                flightCache.invalidate(flightNumber);
+            }
+            flightDeleted(flightNumber);
+        } finally {
+            seatChanges.readLock().unlock();
+        }
+    }
+
+    /**
+     * Updates route and times of flight in database. Number of available seats is not written, see {@link Storage#updateFlight(Flight)}.
+     * @param flight Flight object
+     */
+    public static void updateFlight(Flight flight) {
+        seatChanges.writeLock().lock();
+        try {
+            try {
+                metrics.measure(Operation.UPDATE_FLIGHT, () -> getStorage().updateFlight(flight));
+            } finally {
+                flightCache.invalidate(flight.getFlightNumber());
+            }
+            updatedFlightsSaved(List.of(flight));
+        } finally {
+            seatChanges.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes single column of flight changed by setter outside of unit of work
+     * @param flight Flight object
+     * @param column Changed column, other columns are not written
+     */
+    static void updateFlight(Flight flight, Flight.Column column) {
+        seatChanges.writeLock().lock();
+        try {
+            try {
+                metrics.measure(Operation.UPDATE_FLIGHT, () -> getStorage().updateChanged(Map.of(flight, EnumSet.of(column)), List.of()));
+            } finally {
+                flightCache.invalidate(flight.getFlightNumber());
+            }
+            updatedFlightsSaved(List.of(flight));
+        } finally {
+            seatChanges.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes changes recorded by unit of work in a single transaction.
+     * Each flight gets one UPDATE of its changed columns only, updates of the same columns are sent as one batch.
+     * @param flights Map: key -> changed Flight object <p> value -> changed columns
+     * @param changedPassengers Passengers with changed phone number
+     */
+    static void updateChanged(Map<Flight, Set<Flight.Column>> flights, Collection<Passenger> changedPassengers) {
+        seatChanges.writeLock().lock();
+        try {
+            try {
+                metrics.measure(Operation.UPDATE_CHANGED, () -> getStorage().updateChanged(flights, changedPassengers));
+            } finally {
+                for (Flight flight : flights.keySet()) {
+                    flightCache.invalidate(flight.getFlightNumber());
+                }
+            }
+            updatedFlightsSaved(flights.keySet());
+        } finally {
+            seatChanges.writeLock().unlock();
+        }
+        System.out.println("Updated " + flights.size() + " flights and " + changedPassengers.size() + " passengers info");
+    }
+
+    /**
+     * Updates all passenger info in database
+     * @param passenger Passenger object
+     */
+    public static void updatePassenger(Passenger passenger) {
+        metrics.measure(Operation.UPDATE_PASSENGER, () -> getStorage().updatePassenger(passenger));
+    }
+
+    /**
+     * Inserts passenger info in database
+     * @param passenger Passenger object
+     * @return Passenger database id
+     */
+    public static int addPassengerToDatabase(Passenger passenger) {
+        return metrics.measure(Operation.ADD_PASSENGER, () -> getStorage().addPassenger(passenger), Database::countOfId);
+    }
+
+    /**
+     *
+     * @return List of all flights stored in database
+     */
+    public static List<Flight> getAllFlights() {
+        return metrics.measure(Operation.GET_ALL_FLIGHTS, () -> getStorage().getAllFlights(), List::size);
+    }
+
+    /**
+     * Served from route index without database queries if it is set, see {@link #setRouteIndex(RouteIndex)}
+     * @param r Flight route in format: ORIGIN_AIRPORT-DESTINATION_AIRPORT (e.g. WAW-LAX)
+     * @param includeOppositeDirection Should return also flights going in opposite direction, (e.g. WAW-LAX and LAX-WAW)
+     * @return List of flights that matches route / routes
+     */
+    public static List<Flight> getAllFlightsOnRoute(String r, boolean includeOppositeDirection) {
+        String[] routeAirports = r.trim().toUpperCase().split("-");
+        if (routeAirports.length != 2) throw new IllegalArgumentException("Route is incorrect");
+        RouteIndex index = RouteIndex.canIndex(routeAirports[0], routeAirports[1]) ? routeIndex : null;
+        return metrics.measure(Operation.GET_ALL_FLIGHTS_ON_ROUTE, () -> index != null
+                ? index.getAllFlightsOnRoute(routeAirports[0], routeAirports[1], includeOppositeDirection)
+                : getStorage().getAllFlightsOnRoute(routeAirports[0], routeAirports[1], includeOppositeDirection), List::size);
+    }
+
+    /**
+     * Served from route index without database queries if it is set, see {@link #setRouteIndex(RouteIndex)}
+     * @param airport IATA airport of origin code (e.g. WAW)
+     * @return List of flights departing from airport
+     */
+    public static List<Flight> getAllFlightsFromAirport(String airport) {
+        String originAirport = airport.trim().toUpperCase();
+        RouteIndex index = RouteIndex.canIndex(originAirport, originAirport) ? routeIndex : null;
+        return metrics.measure(Operation.GET_ALL_FLIGHTS_FROM_AIRPORT, () -> index != null
+                ? index.getAllFlightsFromAirport(originAirport) : getStorage().getAllFlightsFromAirport(originAirport), List::size);
+    }
+
+
+    /**
+     * Served from departure index without database queries if it is set, see {@link #setDepartureIndex(DepartureIndex)}
+     * @param hours
+     * @return List of flights departing in next hours specified in parameters
+     */
+    public static List<Flight> getFlightsDepartingInNextHours(int hours) {
+        DepartureIndex index = departureIndex;
+        return metrics.measure(Operation.GET_FLIGHTS_DEPARTING_IN_NEXT_HOURS,
+                () -> index != null ? index.getDepartingInNextHours(hours) : getStorage().getFlightsDepartingInNextHours(hours), List::size);
+    }
+
+
+    /**
+     * Served from availability index without database queries if it is set, see {@link #setAvailabilityIndex(AvailabilityIndex)}
+     * @param minimumSeats Minimum number of available seats
+     * @return List of flights with at least <code>minimumSeats</code> available seats, most available first
+     */
+    public static List<Flight> getFlightsWithAvailableSeats(int minimumSeats) {
+        AvailabilityIndex index = availabilityIndex;
+        return metrics.measure(Operation.GET_FLIGHTS_WITH_AVAILABLE_SEATS,
+                () -> index != null ? index.getFlightsWithAvailableSeats(minimumSeats) : getStorage().getFlightsWithAvailableSeats(minimumSeats), List::size);
+    }
+
+    /**
+     * Served from availability index without database queries if it is set, see {@link #setAvailabilityIndex(AvailabilityIndex)}
+     * @param count Maximum number of returned flights
+     * @return List of up to <code>count</code> flights with most available seats, most available first
+     * @throws IllegalArgumentException if count is not positive
+     */
+    public static List<Flight> getFlightsWithMostAvailableSeats(int count) throws IllegalArgumentException {
+        if (count <= 0) throw new IllegalArgumentException("Incorrect number of flights");
+        AvailabilityIndex index = availabilityIndex;
+        return metrics.measure(Operation.GET_FLIGHTS_WITH_MOST_AVAILABLE_SEATS,
+                () -> index != null ? index.getFlightsWithMostAvailableSeats(count) : getStorage().getFlightsWithMostAvailableSeats(count), List::size);
+    }
+
+    /**
+     *
+     * @return List of all passengers stored in database
+     */
+    public static List<Passenger> getAllPassengers() {
+        return metrics.measure(Operation.GET_ALL_PASSENGERS, () -> getStorage().getAllPassengers(), List::size);
+    }
+
+    /**
+     * Checks many flight numbers at once, e.g. to skip already existing flights before {@link #addFlights(List)}
+     * @param flightNumbers IATA flight numbers
+     * @return Those of given flight numbers (in upper case) which already exist in database
+     */
+    public static Set<String> getExistingFlightNumbers(Collection<String> flightNumbers) {
+        List<String> upperCase = new ArrayList<>(flightNumbers.size());
+        for (String flightNumber : flightNumbers) {
+            upperCase.add(flightNumber.toUpperCase());
+        }
+        return metrics.measure(Operation.GET_EXISTING_FLIGHT_NUMBERS, () -> getStorage().getExistingFlightNumbers(upperCase), Set::size);
+    }
+
+    /**
+     * Checks many passengers at once, e.g. to skip already existing passengers before {@link #addPassengers(List)}
+     * @param candidates Passengers, usually created with {@link Passenger#unsaved}
+     * @return Passengers from database with the same name and surname as any of candidates
+     */
+    public static List<Passenger> getExistingPassengers(Collection<Passenger> candidates) {
+        return metrics.measure(Operation.GET_EXISTING_PASSENGERS, () -> getStorage().getExistingPassengers(candidates), List::size);
+    }
+
+    /**
+     * Lists flights matching filter page by page, ordered by departure time.
+     * <p> Uses keyset pagination: next page starts right after last flight of previous page,
+     * so every page is a single index range read regardless of how far it is from the first one.
+     * @param filter Flight criteria, <code>null</code> lists all flights
+     * @param after Last flight of previous page, <code>null</code> for the first page
+     * @param pageSize Maximum number of returned flights
+     * @return Up to <code>pageSize</code> flights, fewer only on the last page
+     */
+    public static List<Flight> getFlightsPage(FlightFilter filter, Flight after, int pageSize) {
+        if (pageSize <= 0) throw new IllegalArgumentException("Incorrect page size");
+        return metrics.measure(Operation.GET_FLIGHTS_PAGE, () -> getStorage().getFlightsPage(filter, after, pageSize), List::size);
+    }
+
+    /**
+     * Lists passengers page by page, ordered by database id.
+     * <p> Uses keyset pagination, so every page is a single primary key range read.
+     * @param after Last passenger of previous page, <code>null</code> for the first page
+     * @param pageSize Maximum number of returned passengers
+     * @return Up to <code>pageSize</code> passengers, fewer only on the last page
+     */
+    public static List<Passenger> getPassengersPage(Passenger after, int pageSize) {
+        if (pageSize <= 0) throw new IllegalArgumentException("Incorrect page size");
+        return metrics.measure(Operation.GET_PASSENGERS_PAGE, () -> getStorage().getPassengersPage(after, pageSize), List::size);
+    }
+
+    /**
+     * Streams all flights stored in database, reading {@value #DEFAULT_FETCH_SIZE} rows at a time
+     * @see #streamAllFlights(int)
+     */
+    public static Stream<Flight> streamAllFlights() {
+        return streamAllFlights(DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Streams all flights stored in database using server side cursor, so only <code>fetchSize</code> rows are held in memory at once.
+     * Flights are created without passengers, which are loaded the first time they are needed.
+     * <p> Stream holds database connection until closed, so it should be used in try-with-resources block.
+     * @param fetchSize Number of rows fetched from database in one round trip
+     * @return Stream of flights in order of database ids
+     */
+    public static Stream<Flight> streamAllFlights(int fetchSize) {
+        if (fetchSize <= 0) throw new IllegalArgumentException("Incorrect fetch size");
+        return metrics.measure(Operation.STREAM_ALL_FLIGHTS, () -> getStorage().streamAllFlights(fetchSize), stream -> 0);
+    }
+
+    /**
+     * Streams all passengers stored in database, reading {@value #DEFAULT_FETCH_SIZE} rows at a time
+     * @see #streamAllPassengers(int)
+     */
+    public static Stream<Passenger> streamAllPassengers() {
+        return streamAllPassengers(DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Streams all passengers stored in database using server side cursor, so only <code>fetchSize</code> rows are held in memory at once.
+     * Streamed passengers are not registered as shared session objects, so memory use does not grow with table size.
+     * <p> Stream holds database connection until closed, so it should be used in try-with-resources block.
+     * @param fetchSize Number of rows fetched from database in one round trip
+     * @return Stream of passengers in order of database ids
+     */
+    public static Stream<Passenger> streamAllPassengers(int fetchSize) {
+        if (fetchSize <= 0) throw new IllegalArgumentException("Incorrect fetch size");
+        return metrics.measure(Operation.STREAM_ALL_PASSENGERS, () -> getStorage().streamAllPassengers(fetchSize), stream -> 0);
+    }
+
+    /**
+     *
+     * @param passenger Passenger object assigned to flight
+     * @param flight Flight object passenger is assigned to
+     * @param seatNo Booked seat number
+     * @return booking id from database
+     */
+    public static int addPassengerToFlight(Passenger passenger, Flight flight, int seatNo) {
+        try {
+            return metrics.measure(Operation.ADD_PASSENGER_TO_FLIGHT, () -> getStorage().addPassengerToFlight(passenger, flight, seatNo), Database::countOfId);
+        } finally {
+            flightCache.invalidate(flight.getFlightNumber());
+        }
+    }
+
+    /**
+     * Books seat atomically: takes one available seat from flight and inserts booking.
+     * <p> Seat availability is checked by storage (available seats and unique seat per flight),
+     * so concurrent bookings can not overbook flight or double-book seat.
+     * @param passenger Passenger object assigned to flight
+     * @param flight Flight object passenger is assigned to
+     * @param seatNo Booked seat number
+     * @return Booking result with booking id if seat was booked
+     * @throws IllegalArgumentException if passenger is not stored in database
+     * @see JdbcStorage#bookSeat(Passenger, Flight, int)
+     */
+    public static BookingResult bookSeat(Passenger passenger, Flight flight, int seatNo) {
+        seatChanges.readLock().lock();
+        try {
+            BookingResult result;
+            try {
+                result = metrics.measure(Operation.BOOK_SEAT, () -> getStorage().bookSeat(passenger, flight, seatNo), booking -> booking.isBooked() ? 1 : 0);
+            } finally {
+                flightCache.invalidate(flight.getFlightNumber());
+            }
+            if (result.isBooked()) seatsChanged(flight, -1);
+            return result;
+        } finally {
+            seatChanges.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes booking and gives its seat back to flight in a single transaction
+     * @param passenger Passenger object removed from flight
+     * @param flight Flight object passenger is removed from
+     * @return <code>true</code> if booking was removed <p> <code>false</code> if passenger had no booking on flight
+     */
+    public static boolean cancelBooking(Passenger passenger, Flight flight) {
+        seatChanges.readLock().lock();
+        try {
+            boolean cancelled;
+            try {
+                cancelled = metrics.measure(Operation.CANCEL_BOOKING, () -> getStorage().cancelBooking(passenger, flight), Database::countOf);
+            } finally {
+                flightCache.invalidate(flight.getFlightNumber());
+            }
+            if (cancelled) seatsChanged(flight, 1);
+            return cancelled;
+        } finally {
+            seatChanges.readLock().unlock();
+        }
+    }
+
+    /**
+     *
+     * @param passenger Passenger object removed from flight
+     * @param flight Flight object passenger is removed from
+     */
+    public static void removePassengerFromFlight(Passenger passenger, Flight flight) {
+        try {
+            metrics.measure(Operation.REMOVE_PASSENGER_FROM_FLIGHT, () -> getStorage().removePassengerFromFlight(passenger, flight));
+        } finally {
+            flightCache.invalidate(flight.getFlightNumber());
+        }
+    }
+
+    /**
+     * Inserts many flights at once using batched multi-row inserts, in a single transaction.
+     * Flights should be created with {@link Flight#unsaved}, their database ids are set after insert.
+     * @param flights Flights not stored in database yet
+     * @return Added flights database ids, in order of given list
+     */
+    public static int[] addFlights(List<Flight> flights) {
+        int[] ids;
+        seatChanges.readLock().lock();
+        try {
+            ids = metrics.measure(Operation.ADD_FLIGHTS, () -> getStorage().addFlights(flights), added -> added.length);
+            for (Flight flight : flights) {
+                flightSaved(flight);
+            }
+        } finally {
+            seatChanges.readLock().unlock();
+        }
+        System.out.println(ids.length + " flights added to database");
+        return ids;
+    }
+
+    /**
+     * Inserts many passengers at once using batched multi-row inserts, in a single transaction.
+     * Passengers should be created with {@link Passenger#unsaved}, their database ids are set after insert.
+     * @param newPassengers Passengers not stored in database yet
+     * @return Added passengers database ids, in order of given list
+     */
+    public static int[] addPassengers(List<Passenger> newPassengers) {
+        int[] ids = metrics.measure(Operation.ADD_PASSENGERS, () -> getStorage().addPassengers(newPassengers), added -> added.length);
+        System.out.println(ids.length + " passengers added to database");
+        return ids;
+    }
+
+    /**
+     * Inserts many bookings of one flight at once using batched multi-row inserts, in a single transaction.
+     * Like {@link #addPassengerToFlight}, it does not change number of available seats.
+     * @param flight Flight object passengers are assigned to
+     * @param passengersAndSeats Map: key -> Passenger object <p> value -> booked seat number
+     * @return Booking ids from database, in iteration order of given map
+     */
+    public static int[] addBookings(Flight flight, Map<Passenger, Integer> passengersAndSeats) {
+        try {
+            return metrics.measure(Operation.ADD_BOOKINGS, () -> getStorage().addBookings(flight, passengersAndSeats), added -> added.length);
+        } finally {
+            flightCache.invalidate(flight.getFlightNumber());
+        }
+    }
+
+    private static int countOf(Object result) {
+        return result == null || Boolean.FALSE.equals(result) ? 0 : 1;
+    }
+
+    private static int countOfId(int id) {
+        return id > 0 ? 1 : 0;
+    }
+
+    private static int countOfNested(Map<?, ? extends Map<?, ?>> maps) {
+        int count = 0;
+        for (Map<?, ?> map : maps.values()) {
+            count += map.size();
+        }
+        return count;
+    }
+
+    /**
+     * Appends driver settings needed by connection pool and streaming reads, keeping query string of given URL (e.g. <code>?serverTimezone=UTC</code>)
+     */
+    private static String withConnectionProperties(String url) {
+        return url + (url.contains("?") ? "&" : "?") + "useServerPrepStmts=true&rewriteBatchedStatements=true&useCursorFetch=true";
+    }
+
+    /**
+     * Closing database connection, ends session of shared passenger objects
+     */
+    public void close() {
+        synchronized (Database.class) {
+            if (storage != null) {
+                storage.close();
+                storage = null;
+                flightCache.clear();
+                System.out.println("Database disconnected");
+            }
+        }
+    }
+}
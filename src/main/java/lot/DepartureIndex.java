@@ -0,0 +1,85 @@
+package lot;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index of flights ordered by departure time, answering departure window queries with a single range scan without database.
+ * <p> Kept up to date as {@link FlightListener} of changes made through {@link Database}.
+ * Returned flights are new objects created without passengers, which are loaded from database only if needed.
+ * <p> Reads do not lock, updates are serialized. Thread-safe.
+ * @see Database#setDepartureIndex(DepartureIndex)
+ */
+public class DepartureIndex implements FlightListener {
+    private final ConcurrentSkipListMap<IndexedFlight.Key, IndexedFlight> byDeparture = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, IndexedFlight> byFlightNumber = new ConcurrentHashMap<>();
+
+    /**
+     * Adds flights to index, e.g. all flights when index is created
+     * @param flights Flights with database ids, closed by caller
+     */
+    public void load(Stream<Flight> flights) {
+        flights.forEach(this::flightSaved);
+    }
+
+    /**
+     *
+     * @param from Earliest departure time, inclusive
+     * @param to Latest departure time, inclusive
+     * @return Flights departing in given window, ordered by departure time
+     */
+    public List<Flight> getDeparting(Timestamp from, Timestamp to) {
+        List<Flight> flights = new ArrayList<>();
+        if (from.after(to)) return flights;
+        for (IndexedFlight entry : byDeparture.subMap(new IndexedFlight.Key(from.getTime(), Integer.MIN_VALUE), true, new IndexedFlight.Key(to.getTime(), Integer.MAX_VALUE), true).values()) {
+            flights.add(entry.toFlight());
+        }
+        return flights;
+    }
+
+    /**
+     *
+     * @param hours Length of window starting now
+     * @return Flights departing in next hours, ordered by departure time
+     */
+    public List<Flight> getDepartingInNextHours(int hours) {
+        long now = System.currentTimeMillis();
+        return getDeparting(new Timestamp(now), new Timestamp(now + hours * 3_600_000L));
+    }
+
+    public int size() {
+        return byFlightNumber.size();
+    }
+
+    @Override
+    public synchronized void flightSaved(Flight flight) {
+        if (flight.getDbID() <= 0) return;
+        replace(byFlightNumber.get(flight.getFlightNumber()), IndexedFlight.of(flight));
+    }
+
+    @Override
+    public synchronized void flightDeleted(String flightNumber) {
+        IndexedFlight entry = byFlightNumber.remove(flightNumber.toUpperCase());
+        if (entry != null) byDeparture.remove(entry.key());
+    }
+
+    @Override
+    public synchronized void seatsChanged(Flight flight, int availableSeatsDelta) {
+        IndexedFlight entry = byFlightNumber.get(flight.getFlightNumber());
+        if (entry == null) return;
+        replace(entry, entry.withAvailableSeats(entry.availableSeats() + availableSeatsDelta));
+    }
+
+    /**
+     * New entry is added before old one is removed, so flight does not disappear from concurrent range scans
+     */
+    private void replace(IndexedFlight oldEntry, IndexedFlight newEntry) {
+        byDeparture.put(newEntry.key(), newEntry);
+        if (oldEntry != null && !oldEntry.key().equals(newEntry.key())) byDeparture.remove(oldEntry.key());
+        byFlightNumber.put(newEntry.flightNumber(), newEntry);
+    }
+}
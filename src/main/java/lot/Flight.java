@@ -0,0 +1,425 @@
+package lot;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public final class Flight {
+    /**
+     * Columns of flight which can be changed after creation
+     */
+    public enum Column {
+        ORIGIN_AIRPORT("origin_airport"),
+        DESTINATION_AIRPORT("destination_airport"),
+        DEPARTURE_TIME("departure_time"),
+        ESTIMATED_ARRIVAL_TIME("estimated_arrival_time"),
+        AVAILABLE_SEATS("available_seats");
+
+        private final String columnName;
+
+        Column(String columnName) {
+            this.columnName = columnName;
+        }
+
+        public String getColumnName() {
+            return columnName;
+        }
+    }
+
+    private final String flightNumber;
+    private String originAirport;
+    private String destinationAirport;
+    private Timestamp departureTime;    //YYYY-MM-DD hh:mm:ss
+    private Timestamp estimatedArrivalTime;
+    private int availableSeats;
+    private int availableSeatsChange;   // made by setter and not written yet, see setAvailableSeats
+    private int maxNumberOfSeats;
+    private int dbID;
+    private SeatMap seats;   // null until passengers are loaded, see seats()
+
+    /**
+     *
+     * @param flightNo IATA Flight number (2-letter airline code and 1 to 4 digits)
+     * @param originAirp IATA airport of origin code
+     * @param destinationAirp IATA airport of destination code
+     * @param depTime Timestamp in format YYYY-MM-DD hh:mm:ss
+     * @param arrTime Timestamp in format YYYY-MM-DD hh:mm:ss
+     * @param maxNoOfSeats Maximum number of seats
+     * @throws IllegalArgumentException
+     */
+    public Flight(String flightNo, String originAirp, String destinationAirp, Timestamp depTime, Timestamp arrTime, int maxNoOfSeats) throws IllegalArgumentException {
+        this(flightNo, originAirp, destinationAirp, depTime, arrTime, maxNoOfSeats, -1);
+        if (Database.doesFlightExists(flightNo)) throw new IllegalArgumentException("Flight with this number already exists in database");
+
+        this.dbID = Database.addFlightToDatabase(this);
+
+        System.out.println("Flight " + this.flightNumber + " added to database");
+    }
+
+    /**
+     * Validates given data and creates flight object without storing it in database
+     */
+    private Flight(String flightNo, String originAirp, String destinationAirp, Timestamp depTime, Timestamp arrTime, int maxNoOfSeats, int id) throws IllegalArgumentException {
+        if (!isFlightNumberCorrect(flightNo.toUpperCase())) throw new IllegalArgumentException("Flight number is incorrect");
+        if (maxNoOfSeats <= 0) throw new IllegalArgumentException("Incorrect number of seats");
+        if (depTime.after(arrTime) || depTime.equals(arrTime)) throw new IllegalArgumentException("Incorrect departure or arrival datetime");
+
+        this.originAirport = normalizeAirport(originAirp);
+        this.destinationAirport = normalizeAirport(destinationAirp);
+        this.flightNumber = flightNo.toUpperCase();
+        this.departureTime = depTime;
+        this.estimatedArrivalTime = arrTime;
+        this.availableSeats = maxNoOfSeats;
+        this.maxNumberOfSeats = maxNoOfSeats;
+        this.dbID = id;
+        this.seats = new SeatMap(maxNoOfSeats);
+    }
+
+    /**
+     * Creates flight which is not stored in database yet, to be inserted in batch with {@link Database#addFlights(List)}.
+     * Unlike public constructor it does not check if flight number already exists in database.
+     * @param flightNo IATA Flight number (2-letter airline code and 1 to 4 digits)
+     * @param originAirp IATA airport of origin code
+     * @param destinationAirp IATA airport of destination code
+     * @param depTime Timestamp in format YYYY-MM-DD hh:mm:ss
+     * @param arrTime Timestamp in format YYYY-MM-DD hh:mm:ss
+     * @param maxNoOfSeats Maximum number of seats
+     * @return Flight object with database id -1
+     * @throws IllegalArgumentException
+     */
+    public static Flight unsaved(String flightNo, String originAirp, String destinationAirp, Timestamp depTime, Timestamp arrTime, int maxNoOfSeats) throws IllegalArgumentException {
+        return new Flight(flightNo, originAirp, destinationAirp, depTime, arrTime, maxNoOfSeats, -1);
+    }
+
+    /**
+     * Only used to create Flight object pulled from database
+     */
+    public Flight(int id, String flightNo, String originAirp, String destinationAirp, Timestamp depTime, Timestamp arrTime, int availSeats, int maxNoOfSeats, Map<Passenger, Integer> passengersAndSeats) {
+        this.dbID = id;
+        this.originAirport = normalizeAirport(originAirp);
+        this.destinationAirport = normalizeAirport(destinationAirp);
+        this.flightNumber = flightNo.toUpperCase();
+        this.departureTime = depTime;
+        this.estimatedArrivalTime = arrTime;
+        this.availableSeats = availSeats;
+        this.maxNumberOfSeats = maxNoOfSeats;
+        this.seats = passengersAndSeats == null ? null : SeatMap.of(maxNoOfSeats, passengersAndSeats);
+    }
+
+    /**
+     * Only used to create Flight object pulled from database, without its passengers.
+     * Passengers are loaded from database the first time they are needed.
+     */
+    public Flight(int id, String flightNo, String originAirp, String destinationAirp, Timestamp depTime, Timestamp arrTime, int availSeats, int maxNoOfSeats) {
+        this(id, flightNo, originAirp, destinationAirp, depTime, arrTime, availSeats, maxNoOfSeats, null);
+    }
+
+    /**
+     * Flight objects are not thread-safe, so {@link FlightCache} stores and hands out copies instead of sharing one object.
+     * Passenger objects are shared by the copy.
+     * @return Flight with the same data and its own seats and timestamps
+     */
+    Flight copy() {
+        return new Flight(this.dbID, this.flightNumber, this.originAirport, this.destinationAirport,
+                (Timestamp) this.departureTime.clone(), (Timestamp) this.estimatedArrivalTime.clone(),
+                this.availableSeats, this.maxNumberOfSeats, this.seats == null ? null : this.seats.toMap());
+    }
+
+    /**
+     *
+     * @return Seats of passengers, loaded from database on first call if flight was created without them
+     */
+    private SeatMap seats() {
+        if (this.seats == null) {
+            this.seats = SeatMap.of(this.maxNumberOfSeats, Database.getPassengersOnFlight(this.dbID));
+        }
+        return this.seats;
+    }
+
+    /**
+     *
+     * @return <code>true</code> if passengers of this flight are already loaded <p> <code>false</code> otherwise
+     */
+    public boolean arePassengersLoaded() {
+        return this.seats != null;
+    }
+
+    /**
+     * Returns if given string is valid IATA flight number (2-letter airline code and 1 to 4 digits)
+     * @param flightNumber
+     * @return <code>true</code> if string is in IATA format <p> <code>false</code> otherwise
+     */
+    static boolean isFlightNumberCorrect(String flightNumber) {
+        // Checked by hand instead of regular expression, as it is called for every flight lookup and imported row
+        int length = flightNumber.length();
+        if (length < 3 || length > 6) return false;
+        for (int i = 0; i < length; i++) {
+            char c = flightNumber.charAt(i);
+            boolean correct = i < 2 ? (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') : c >= '0' && c <= '9';
+            if (!correct) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Airport codes are kept in upper case, independent of default locale (e.g. Turkish dotted I)
+     */
+    private static String normalizeAirport(String airport) {
+        return airport.trim().toUpperCase(Locale.ROOT);
+    }
+
+    public String getFlightNumber() {
+        return this.flightNumber;
+    }
+
+    public int getAvailableSeats() {
+        return availableSeats;
+    }
+
+    public int getMaxNumberOfSeats() {
+        return maxNumberOfSeats;
+    }
+
+    /**
+     * Calculates estimated flight time based on previously assigned departure and est. arrival time
+     * @return <code>long</code> array: <p> [0] - hours <p> [1] - minutes
+     */
+    public long[] getFlightDuration() {
+        long milliseconds = estimatedArrivalTime.getTime() - departureTime.getTime();
+        long hours = TimeUnit.MILLISECONDS.toHours(milliseconds);
+        long minutes = TimeUnit.MILLISECONDS.toMinutes(milliseconds) % 60;
+        return new long[]{hours, minutes};
+    }
+
+    /**
+     * Assigns given passenger to flight. Seat is booked atomically in database, so it can not be double-booked by concurrent bookings.
+     * @param passenger Passenger object
+     * @param seatNo Seat number
+     * @return booking id if successfully assigned <p> -1 if can not assign
+     */
+    public int assignPassenger(Passenger passenger, int seatNo) {
+        if (this.availableSeats == 0) {
+            System.out.println("No seats available, can't assign new passenger");
+            return -1;
+        }
+        if (seatNo < 1 || seatNo > this.maxNumberOfSeats) {
+            System.out.println("Incorrect seat number");
+            return -1;
+        }
+        SeatMap seats = seats();
+        if (seats.isOccupied(seatNo)) {
+            System.out.println("Selected seat is unavailable");
+            return -1;
+        }
+        if (seats.contains(passenger)) {
+            System.out.println("Passenger " + passenger.getFullName() + " already assigned to flight");
+            return -1;
+        }
+
+        BookingResult result = Database.bookSeat(passenger, this, seatNo);
+        switch (result.getStatus()) {
+            case BOOKED -> {
+                seats.assign(passenger, seatNo);
+                this.availableSeats--;
+                System.out.println("Passenger " + passenger.getFullName() + " assigned to flight " + this.flightNumber);
+            }
+            case SEAT_TAKEN -> System.out.println("Selected seat is unavailable");
+            case ALREADY_BOOKED -> System.out.println("Passenger " + passenger.getFullName() + " already assigned to flight");
+            case FLIGHT_FULL -> {
+                this.availableSeats = 0;
+                System.out.println("No seats available, can't assign new passenger");
+            }
+            case FLIGHT_NOT_FOUND -> System.out.println("Flight " + this.flightNumber + " is not stored in database");
+        }
+        return result.getBookingId();
+    }
+
+    /**
+     * Removes given passenger from flight
+     * @param passenger Passenger object
+     */
+    public void removePassenger(Passenger passenger) {
+        // Passenger is found by database id, so it does not have to be the same object as the one assigned to flight
+        if (seats().remove(passenger.getDbID()) >= 0) {
+            if (Database.cancelBooking(passenger, this)) this.availableSeats++;
+            return;
+        }
+        System.out.println("Passenger " + passenger.getFullName() + " is not assigned to flight");
+    }
+
+    public String getOriginAirport() {
+        return originAirport;
+    }
+
+    public String getDestinationAirport() {
+        return destinationAirport;
+    }
+
+    /**
+     *
+     * @return Flight route in format: ORIGIN_AIRPORT-DESTINATION_AIRPORT (e.g. WAW-LAX)
+     */
+    public String getRoute() {
+        return this.originAirport + "-" + this.destinationAirport;
+    }
+
+    public Timestamp getDepartureTime() {
+        return departureTime;
+    }
+
+    public Timestamp getEstimatedArrivalTime() {
+        return estimatedArrivalTime;
+    }
+
+    /**
+     *
+     * @return Map: key -> Passenger object <p> value -> seat number, in order of seats
+     */
+    public Map<Passenger, Integer> getPassengersAndSeats() {
+        return seats().toMap();
+    }
+
+    /**
+     *
+     * @param seatNo Seat number
+     * @return <code>true</code> if seat is booked <p> <code>false</code> otherwise
+     */
+    public boolean isSeatOccupied(int seatNo) {
+        return seats().isOccupied(seatNo);
+    }
+
+    /**
+     *
+     * @param passenger Passenger object
+     * @return Seat number of passenger <p> -1 if passenger is not assigned to flight
+     */
+    public int getSeatOf(Passenger passenger) {
+        return seats().getSeat(passenger.getDbID());
+    }
+
+    public int getDbID() {
+        return dbID;
+    }
+
+    /**
+     * Used after flight created with {@link #unsaved} is inserted into database
+     */
+    void setDbID(int dbID) {
+        this.dbID = dbID;
+    }
+
+    /**
+     *
+     * @return List of Passengers assigned to this flight, in order of seats
+     */
+    public List<Passenger> getPassengersList() {
+        return seats().getPassengers();
+    }
+
+    /**
+     *
+      * @return List of occupied seats on flight, in ascending order
+     */
+    public List<Integer> getOccupiedSeatsList() {
+        return seats().getOccupiedSeats();
+    }
+
+    /**
+     *
+     * @return List of free seats on flight, in ascending order
+     */
+    public List<Integer> getFreeSeatsList() {
+        return seats().getFreeSeats();
+    }
+
+    /**
+     * Deletes flight from database
+     */
+    public void delete() {
+        Database.deleteFlightFromDatabase(this.flightNumber);
+    }
+
+    public void setOriginAirport(String originAirport) {
+        String previous = this.originAirport;
+        this.originAirport = normalizeAirport(originAirport);
+        changed(Column.ORIGIN_AIRPORT, previous);
+    }
+
+    public void setDestinationAirport(String destinationAirport) {
+        String previous = this.destinationAirport;
+        this.destinationAirport = normalizeAirport(destinationAirport);
+        changed(Column.DESTINATION_AIRPORT, previous);
+    }
+
+    public void setDepartureTime(Timestamp departureTime) {
+        Timestamp previous = this.departureTime;
+        this.departureTime = departureTime;
+        changed(Column.DEPARTURE_TIME, previous);
+    }
+
+    public void setEstimatedArrivalTime(Timestamp estimatedArrivalTime) {
+        Timestamp previous = this.estimatedArrivalTime;
+        this.estimatedArrivalTime = estimatedArrivalTime;
+        changed(Column.ESTIMATED_ARRIVAL_TIME, previous);
+    }
+
+    /**
+     * Database is changed by the difference to current value of this object,
+     * so seats booked meanwhile through other objects of this flight are not undone.
+     */
+    public void setAvailableSeats(int availableSeats) {
+        int previous = this.availableSeats;
+        this.availableSeatsChange += availableSeats - previous;
+        this.availableSeats = availableSeats;
+        changed(Column.AVAILABLE_SEATS, previous);
+    }
+
+    /**
+     *
+     * @return Change of available seats made by {@link #setAvailableSeats(int)} and not written to database yet
+     */
+    int getAvailableSeatsChange() {
+        return availableSeatsChange;
+    }
+
+    /**
+     * Called after changes of this flight are written to database
+     */
+    void changesWritten() {
+        this.availableSeatsChange = 0;
+    }
+
+    /**
+     * Restores value of column from before uncommitted change, without writing it to database
+     * @param previous Value returned by getter before the change, ignored for available seats
+     */
+    void restore(Column column, Object previous) {
+        switch (column) {
+            case ORIGIN_AIRPORT -> this.originAirport = (String) previous;
+            case DESTINATION_AIRPORT -> this.destinationAirport = (String) previous;
+            case DEPARTURE_TIME -> this.departureTime = (Timestamp) previous;
+            case ESTIMATED_ARRIVAL_TIME -> this.estimatedArrivalTime = (Timestamp) previous;
+            // Seats booked or cancelled meanwhile are kept, only the setter change is taken back
+            case AVAILABLE_SEATS -> {
+                this.availableSeats -= this.availableSeatsChange;
+                this.availableSeatsChange = 0;
+            }
+        }
+    }
+
+    /**
+     * Writes only changed column to database, or only records the change if unit of work is active
+     * @param previous Value of column before the change
+     */
+    private void changed(Column column, Object previous) {
+        UnitOfWork unitOfWork = UnitOfWork.current();
+        if (unitOfWork != null) {
+            unitOfWork.flightChanged(this, column, previous);
+        } else {
+            Database.updateFlight(this, column);
+            changesWritten();
+        }
+    }
+}
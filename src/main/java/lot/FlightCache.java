@@ -0,0 +1,166 @@
+package lot;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of flights (together with their passengers) keyed by flight number.
+ * <p> Least recently used flight is evicted when cache is full, flights older than time to live are reloaded.
+ * <p> Flight loaded from database is cached only if it was not invalidated since the load started,
+ * so a load racing with a write can not put the state from before the write back into cache:
+ * <pre>
+ * long generation = cache.getGeneration(flightNumber);
+ * Flight flight = ...;   // read from database
+ * cache.put(flight, generation);
+ * </pre>
+ * <p> Thread-safe. Flight objects are not, so the cache keeps its own copy of every put flight and every
+ * {@link #get(String)} returns a new copy. Callers, e.g. virtual threads of {@link AsyncDatabase}, can change returned flight
+ * without affecting each other or the cached state.
+ */
+public class FlightCache {
+    public static final int DEFAULT_MAX_SIZE = 1000;
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = 60_000;
+    private static final int GENERATION_STRIPES = 64;
+
+    private final int maxSize;
+    private final long timeToLiveMillis;
+    private final Map<String, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    // Invalidation counters of flight numbers hashed into stripes, guarded by entries
+    private final long[] generations = new long[GENERATION_STRIPES];
+
+    private static class Entry {
+        private final Flight flight;
+        private final long loadedAt;
+
+        private Entry(Flight flight, long loadedAt) {
+            this.flight = flight;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    public FlightCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_TIME_TO_LIVE_MILLIS);
+    }
+
+    /**
+     *
+     * @param maxSize Maximum number of cached flights, 0 disables caching
+     * @param timeToLiveMillis How long flight is served from cache before it is reloaded from database
+     * @throws IllegalArgumentException if size or time to live is negative
+     */
+    public FlightCache(int maxSize, long timeToLiveMillis) throws IllegalArgumentException {
+        if (maxSize < 0 || timeToLiveMillis < 0) throw new IllegalArgumentException("Incorrect cache size or time to live");
+        this.maxSize = maxSize;
+        this.timeToLiveMillis = timeToLiveMillis;
+        // Access ordered, so the least recently used flight is evicted first
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= FlightCache.this.maxSize) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    /**
+     *
+     * @param flightNumber IATA flight number
+     * @return Copy of cached flight <p> <code>null</code> if flight is not cached or expired
+     */
+    public Flight get(String flightNumber) {
+        String key = flightNumber.toUpperCase();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && System.currentTimeMillis() - entry.loadedAt <= timeToLiveMillis) {
+                hits.increment();
+                return entry.flight.copy();
+            }
+            if (entry != null) {
+                entries.remove(key);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Has to be read before flight is loaded from database, to be passed to {@link #put(Flight, long)}
+     * @param flightNumber IATA flight number
+     * @return Number of invalidations which could affect given flight so far
+     */
+    public long getGeneration(String flightNumber) {
+        synchronized (entries) {
+            return generations[stripe(flightNumber.toUpperCase())];
+        }
+    }
+
+    /**
+     * Caches copy of flight, unless it was invalidated after the load started
+     * @param flight Flight loaded from database
+     * @param generation Result of {@link #getGeneration(String)} read before flight was loaded
+     * @return <code>true</code> if flight was cached
+     */
+    public boolean put(Flight flight, long generation) {
+        if (maxSize == 0) return false;
+        Flight copy = flight.copy();
+        synchronized (entries) {
+            if (generations[stripe(flight.getFlightNumber())] != generation) return false;
+            entries.put(flight.getFlightNumber(), new Entry(copy, System.currentTimeMillis()));
+            return true;
+        }
+    }
+
+    /**
+     * Removes flight from cache, so it is loaded from database on next access.
+     * Should be called after flight is written, loads which started before that are not cached.
+     * @param flightNumber IATA flight number
+     */
+    public void invalidate(String flightNumber) {
+        String key = flightNumber.toUpperCase();
+        synchronized (entries) {
+            entries.remove(key);
+            generations[stripe(key)]++;
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            for (int i = 0; i < generations.length; i++) {
+                generations[i]++;
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     *
+     * @return Number of flights removed because cache was full or they expired
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private static int stripe(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % GENERATION_STRIPES;
+    }
+}
@@ -0,0 +1,448 @@
+package lot;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Columnar in-memory store of flight info, for scans over large number of flights.
+ * <p> Each flight takes one slot in parallel primitive arrays: ids, packed flight numbers and airport codes ({@link AirportCode}),
+ * departure and arrival times in epoch milliseconds and seat counts. That is 40 bytes per flight, plus at least 16 bytes of id to slot
+ * hash table kept at most half full, so about 56 bytes per flight instead of hundreds taken by Flight object.
+ * Scans return database ids of matching flights and Flight objects are created only for ids passed to {@link #hydrate(int[])}.
+ * Large scans can be run in parallel on common fork-join pool.
+ * <p> Kept up to date as {@link FlightListener}. It should be filled and registered with
+ * {@link Database#addLoadedFlightListener(FlightListener)}, which also applies changes made while it is filled:
+ * <pre>
+ * FlightColumns columns = new FlightColumns(true);
+ * Database.addLoadedFlightListener(columns);
+ * </pre>
+ * <p> Scans share read lock, updates take write lock. Thread-safe.
+ */
+public class FlightColumns implements FlightListener {
+    /**
+     * Minimum number of flights scanned in parallel, smaller scans are not worth splitting
+     */
+    public static final int PARALLEL_THRESHOLD = 100_000;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    static final int INVALID_FLIGHT_NUMBER = -1;
+
+    private final boolean parallel;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Number of used slots, including ones of deleted flights
+     */
+    private int size;
+    private int deleted;
+    /**
+     * Database ids, 0 in slots of deleted flights
+     */
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] flightNumbers = new int[INITIAL_CAPACITY];
+    private int[] origins = new int[INITIAL_CAPACITY];
+    private int[] destinations = new int[INITIAL_CAPACITY];
+    private long[] departureTimes = new long[INITIAL_CAPACITY];
+    private long[] arrivalTimes = new long[INITIAL_CAPACITY];
+    private int[] availableSeats = new int[INITIAL_CAPACITY];
+    private int[] maxSeats = new int[INITIAL_CAPACITY];
+    private final IdSlots slotsById = new IdSlots();
+    /**
+     * Flight number, origin and destination of flights whose values can not be packed, by database id
+     */
+    private final Map<Integer, String[]> unpacked = new HashMap<>();
+
+    /**
+     * Creates store scanning on calling thread only
+     */
+    public FlightColumns() {
+        this(false);
+    }
+
+    /**
+     *
+     * @param parallel Should scans of at least {@value #PARALLEL_THRESHOLD} flights run in parallel on common fork-join pool
+     */
+    public FlightColumns(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Adds flights to store, e.g. flights of a snapshot in store which is not registered as listener
+     * @param flights Flights with database ids, closed by caller
+     */
+    public void load(Stream<Flight> flights) {
+        flights.forEach(this::flightSaved);
+    }
+
+    /**
+     *
+     * @return Number of stored flights
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size - deleted;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds flights matching all criteria of filter in a single pass over columns
+     * @param filter Flight criteria, <code>null</code> matches all flights
+     * @return Database ids of matching flights, in order of slots
+     */
+    public int[] find(FlightFilter filter) {
+        if (filter == null) filter = new FlightFilter();
+        FlightFilter criteria = filter;
+        lock.readLock().lock();
+        try {
+            IntPredicate matches = row -> ids[row] != 0;
+            if (criteria.getOriginAirport() != null) matches = matches.and(routePredicate(criteria));
+            if (criteria.getDepartureFrom() != null) {
+                long from = criteria.getDepartureFrom().getTime();
+                matches = matches.and(row -> departureTimes[row] >= from);
+            }
+            if (criteria.getDepartureTo() != null) {
+                long to = criteria.getDepartureTo().getTime();
+                matches = matches.and(row -> departureTimes[row] <= to);
+            }
+            if (criteria.getMinimumSeats() > 0) {
+                int minimumSeats = criteria.getMinimumSeats();
+                matches = matches.and(row -> availableSeats[row] >= minimumSeats);
+            }
+            return scan(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *
+     * @param minMillis Shortest flight duration, inclusive
+     * @param maxMillis Longest flight duration, inclusive
+     * @return Database ids of flights lasting between given durations, in order of slots
+     */
+    public int[] findWithDurationBetween(long minMillis, long maxMillis) {
+        lock.readLock().lock();
+        try {
+            return scan(row -> {
+                long duration = arrivalTimes[row] - departureTimes[row];
+                return ids[row] != 0 && duration >= minMillis && duration <= maxMillis;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Creates Flight objects of given flights, their passengers are loaded from database only if needed
+     * @param flightIds Database ids, e.g. returned by scan
+     * @return Flights in order of given ids, ids of flights no longer stored are skipped
+     */
+    public List<Flight> hydrate(int[] flightIds) {
+        List<Flight> flights = new ArrayList<>(flightIds.length);
+        lock.readLock().lock();
+        try {
+            for (int id : flightIds) {
+                int row = slotsById.get(id);
+                if (row < 0) continue;
+                flights.add(new Flight(id, flightNumberOf(row), originOf(row), destinationOf(row), new Timestamp(departureTimes[row]),
+                        new Timestamp(arrivalTimes[row]), availableSeats[row], maxSeats[row]));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return flights;
+    }
+
+    /**
+     * @param flightId Database id
+     * @return Flight route in format ORIGIN_AIRPORT-DESTINATION_AIRPORT, like {@link Flight#getRoute()} <p> <code>null</code> if flight is not stored
+     */
+    public String getRoute(int flightId) {
+        lock.readLock().lock();
+        try {
+            int row = slotsById.get(flightId);
+            return row < 0 ? null : originOf(row) + "-" + destinationOf(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param flightId Database id
+     * @return Flight duration like {@link Flight#getFlightDuration()}: [hours, minutes] <p> <code>null</code> if flight is not stored
+     */
+    public long[] getFlightDuration(int flightId) {
+        lock.readLock().lock();
+        try {
+            int row = slotsById.get(flightId);
+            if (row < 0) return null;
+            long milliseconds = arrivalTimes[row] - departureTimes[row];
+            return new long[]{TimeUnit.MILLISECONDS.toHours(milliseconds), TimeUnit.MILLISECONDS.toMinutes(milliseconds) % 60};
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void flightSaved(Flight flight) {
+        if (flight.getDbID() <= 0) return;
+        lock.writeLock().lock();
+        try {
+            int row = slotsById.get(flight.getDbID());
+            if (row < 0) {
+                if (size == ids.length) grow();
+                row = size++;
+                slotsById.put(flight.getDbID(), row);
+            }
+            write(row, flight);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void flightDeleted(String flightNumber) {
+        String number = flightNumber.toUpperCase();
+        int packed = packFlightNumber(number);
+        lock.writeLock().lock();
+        try {
+            // Deletions are rare, so flights are not indexed by number
+            for (int row = 0; row < size; row++) {
+                if (ids[row] != 0 && flightNumbers[row] == packed && number.equals(flightNumberOf(row))) {
+                    slotsById.remove(ids[row]);
+                    unpacked.remove(ids[row]);
+                    ids[row] = 0;
+                    deleted++;
+                }
+            }
+            if (deleted > INITIAL_CAPACITY && deleted > size / 2) compact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void seatsChanged(Flight flight, int availableSeatsDelta) {
+        lock.writeLock().lock();
+        try {
+            int row = slotsById.get(flight.getDbID());
+            if (row >= 0) availableSeats[row] += availableSeatsDelta;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Has to be called holding read lock
+     */
+    private int[] scan(IntPredicate matches) {
+        int[] columnIds = ids;
+        IntStream rows = IntStream.range(0, size);
+        if (parallel && size >= PARALLEL_THRESHOLD) rows = rows.parallel();
+        return rows.filter(matches).map(row -> columnIds[row]).toArray();
+    }
+
+    private IntPredicate routePredicate(FlightFilter filter) {
+        boolean opposite = filter.isIncludeOppositeDirection();
+        int origin = AirportCode.pack(filter.getOriginAirport());
+        int destination = AirportCode.pack(filter.getDestinationAirport());
+        if (origin != AirportCode.INVALID && destination != AirportCode.INVALID) {
+            return row -> (origins[row] == origin && destinations[row] == destination)
+                    || (opposite && origins[row] == destination && destinations[row] == origin);
+        }
+
+        // Codes which can not be packed can only match flights kept with unpacked values
+        String originCode = filter.getOriginAirport();
+        String destinationCode = filter.getDestinationAirport();
+        return row -> {
+            if (origins[row] != AirportCode.INVALID && destinations[row] != AirportCode.INVALID) return false;
+            String rowOrigin = originOf(row);
+            String rowDestination = destinationOf(row);
+            return (rowOrigin.equals(originCode) && rowDestination.equals(destinationCode))
+                    || (opposite && rowOrigin.equals(destinationCode) && rowDestination.equals(originCode));
+        };
+    }
+
+    private void write(int row, Flight flight) {
+        int id = flight.getDbID();
+        ids[row] = id;
+        flightNumbers[row] = packFlightNumber(flight.getFlightNumber());
+        origins[row] = AirportCode.pack(flight.getOriginAirport());
+        destinations[row] = AirportCode.pack(flight.getDestinationAirport());
+        departureTimes[row] = flight.getDepartureTime().getTime();
+        arrivalTimes[row] = flight.getEstimatedArrivalTime().getTime();
+        availableSeats[row] = flight.getAvailableSeats();
+        maxSeats[row] = flight.getMaxNumberOfSeats();
+        if (flightNumbers[row] == INVALID_FLIGHT_NUMBER || origins[row] == AirportCode.INVALID || destinations[row] == AirportCode.INVALID) {
+            unpacked.put(id, new String[]{flight.getFlightNumber(), flight.getOriginAirport(), flight.getDestinationAirport()});
+        } else {
+            unpacked.remove(id);
+        }
+    }
+
+    private String flightNumberOf(int row) {
+        return flightNumbers[row] == INVALID_FLIGHT_NUMBER ? unpacked.get(ids[row])[0] : unpackFlightNumber(flightNumbers[row]);
+    }
+
+    private String originOf(int row) {
+        return origins[row] == AirportCode.INVALID ? unpacked.get(ids[row])[1] : AirportCode.unpack(origins[row]);
+    }
+
+    private String destinationOf(int row) {
+        return destinations[row] == AirportCode.INVALID ? unpacked.get(ids[row])[2] : AirportCode.unpack(destinations[row]);
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        flightNumbers = Arrays.copyOf(flightNumbers, capacity);
+        origins = Arrays.copyOf(origins, capacity);
+        destinations = Arrays.copyOf(destinations, capacity);
+        departureTimes = Arrays.copyOf(departureTimes, capacity);
+        arrivalTimes = Arrays.copyOf(arrivalTimes, capacity);
+        availableSeats = Arrays.copyOf(availableSeats, capacity);
+        maxSeats = Arrays.copyOf(maxSeats, capacity);
+    }
+
+    /**
+     * Moves stored flights over slots of deleted ones
+     */
+    private void compact() {
+        int to = 0;
+        for (int from = 0; from < size; from++) {
+            if (ids[from] == 0) continue;
+            ids[to] = ids[from];
+            flightNumbers[to] = flightNumbers[from];
+            origins[to] = origins[from];
+            destinations[to] = destinations[from];
+            departureTimes[to] = departureTimes[from];
+            arrivalTimes[to] = arrivalTimes[from];
+            availableSeats[to] = availableSeats[from];
+            maxSeats[to] = maxSeats[from];
+            slotsById.put(ids[to], to);
+            to++;
+        }
+        size = to;
+        deleted = 0;
+    }
+
+    /**
+     * Packs IATA flight number (2 letters and 1 to 4 digits) into 27 bits: letters, number of digits and number itself,
+     * so leading zeros are kept
+     * @return Packed flight number, {@value #INVALID_FLIGHT_NUMBER} if it is not in correct format
+     */
+    static int packFlightNumber(String flightNumber) {
+        if (!Flight.isFlightNumberCorrect(flightNumber)) return INVALID_FLIGHT_NUMBER;
+        int first = Character.toUpperCase(flightNumber.charAt(0)) - 'A';
+        int second = Character.toUpperCase(flightNumber.charAt(1)) - 'A';
+        int digits = flightNumber.length() - 2;
+        return (first << 22) | (second << 17) | (digits << 14) | Integer.parseInt(flightNumber, 2, flightNumber.length(), 10);
+    }
+
+    static String unpackFlightNumber(int packed) {
+        char first = (char) ('A' + (packed >>> 22));
+        char second = (char) ('A' + ((packed >>> 17) & 0x1F));
+        int digits = (packed >>> 14) & 0x7;
+        String number = Integer.toString(packed & 0x3FFF);
+        return "" + first + second + "0".repeat(digits - number.length()) + number;
+    }
+
+    /**
+     * Open addressing hash map of database ids to slots, without boxing.
+     * Guarded by lock of store.
+     */
+    static class IdSlots {
+        private static final int FREE = 0;
+        private static final int REMOVED = -1;
+
+        private int[] keys = new int[INITIAL_CAPACITY * 2];
+        private int[] values = new int[INITIAL_CAPACITY * 2];
+        /**
+         * Number of not free entries, including removed ones
+         */
+        private int used;
+        private int live;
+
+        /**
+         * @return Slot of flight, -1 if flight is not stored
+         */
+        int get(int id) {
+            int mask = keys.length - 1;
+            for (int i = mix(id) & mask; keys[i] != FREE; i = (i + 1) & mask) {
+                if (keys[i] == id) return values[i];
+            }
+            return -1;
+        }
+
+        void put(int id, int slot) {
+            // Table of mostly removed entries is rebuilt at the same size
+            if ((used + 1) * 2 > keys.length) rehash((live + 1) * 4 > keys.length ? keys.length * 2 : keys.length);
+            int mask = keys.length - 1;
+            int target = -1;
+            for (int i = mix(id) & mask; keys[i] != FREE; i = (i + 1) & mask) {
+                if (keys[i] == id) {
+                    values[i] = slot;
+                    return;
+                }
+                if (keys[i] == REMOVED && target < 0) target = i;
+            }
+            if (target < 0) {
+                target = mix(id) & mask;
+                while (keys[target] != FREE) target = (target + 1) & mask;
+                used++;
+            }
+            live++;
+            keys[target] = id;
+            values[target] = slot;
+        }
+
+        void remove(int id) {
+            int mask = keys.length - 1;
+            for (int i = mix(id) & mask; keys[i] != FREE; i = (i + 1) & mask) {
+                if (keys[i] == id) {
+                    keys[i] = REMOVED;
+                    live--;
+                    return;
+                }
+            }
+        }
+
+        /**
+         *
+         * @return Size of hash table, number of entries it can hold before growing is half of it
+         */
+        int capacity() {
+            return keys.length;
+        }
+
+        private void rehash(int capacity) {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[capacity];
+            values = new int[capacity];
+            used = 0;
+            live = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != FREE && oldKeys[i] != REMOVED) put(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int mix(int id) {
+            int h = id * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package lot;
+
+import java.sql.Timestamp;
+
+/**
+ * Criteria of flights listed by {@link Database#getFlightsPage(FlightFilter, Flight, int)}.
+ * <p> Each criterion is optional, flights have to match all set criteria.
+ */
+public class FlightFilter {
+    private String originAirport;
+    private String destinationAirport;
+    private boolean includeOppositeDirection;
+    private Timestamp departureFrom;
+    private Timestamp departureTo;
+    private int minimumSeats = 0;
+
+    /**
+     *
+     * @param route Flight route in format: ORIGIN_AIRPORT-DESTINATION_AIRPORT (e.g. WAW-LAX)
+     * @param includeOppositeDirection Should match also flights going in opposite direction, (e.g. WAW-LAX and LAX-WAW)
+     * @return this filter
+     * @throws IllegalArgumentException if route is not in correct format
+     */
+    public FlightFilter route(String route, boolean includeOppositeDirection) throws IllegalArgumentException {
+        String[] routeAirports = route.trim().toUpperCase().split("-");
+        if (routeAirports.length != 2) throw new IllegalArgumentException("Route is incorrect");
+        this.originAirport = routeAirports[0];
+        this.destinationAirport = routeAirports[1];
+        this.includeOppositeDirection = includeOppositeDirection;
+        return this;
+    }
+
+    /**
+     *
+     * @param from Earliest departure time (inclusive)
+     * @param to Latest departure time (inclusive)
+     * @return this filter
+     */
+    public FlightFilter departingBetween(Timestamp from, Timestamp to) {
+        this.departureFrom = from;
+        this.departureTo = to;
+        return this;
+    }
+
+    /**
+     *
+     * @param minimumSeats Minimum number of available seats
+     * @return this filter
+     */
+    public FlightFilter minimumSeats(int minimumSeats) {
+        this.minimumSeats = minimumSeats;
+        return this;
+    }
+
+    String getOriginAirport() {
+        return originAirport;
+    }
+
+    String getDestinationAirport() {
+        return destinationAirport;
+    }
+
+    boolean isIncludeOppositeDirection() {
+        return includeOppositeDirection;
+    }
+
+    Timestamp getDepartureFrom() {
+        return departureFrom;
+    }
+
+    Timestamp getDepartureTo() {
+        return departureTo;
+    }
+
+    int getMinimumSeats() {
+        return minimumSeats;
+    }
+}
@@ -0,0 +1,30 @@
+package lot;
+
+/**
+ * Notified by {@link Database} after flights are changed through it, e.g. to keep in-memory indexes up to date.
+ * <p> Listeners are called on the thread which made the change, after it was written, so they should return quickly.
+ * Changes made directly in database (e.g. by other application instances) are not notified.
+ * @see Database#addFlightListener(FlightListener)
+ */
+public interface FlightListener {
+
+    /**
+     * Flight was added or its info was updated
+     * @param flight Flight object with current values and database id
+     */
+    void flightSaved(Flight flight);
+
+    /**
+     * Flight was deleted together with its bookings
+     * @param flightNumber IATA flight number
+     */
+    void flightDeleted(String flightNumber);
+
+    /**
+     * Number of available seats was changed by booking or cancellation.
+     * Given flight object may not reflect the change yet, so only the difference should be applied.
+     * @param flight Flight object of changed flight
+     * @param availableSeatsDelta Change of available seats, e.g. -1 after booking
+     */
+    void seatsChanged(Flight flight, int availableSeatsDelta);
+}
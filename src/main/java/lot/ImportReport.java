@@ -0,0 +1,91 @@
+package lot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a single {@link ScheduleImporter} run: number of read, imported and rejected rows, rejection reasons and throughput.
+ * <p> Only the first {@value #MAX_KEPT_REJECTIONS} rejected rows are kept with their reasons, all of them are counted.
+ */
+public class ImportReport {
+    public static final int MAX_KEPT_REJECTIONS = 1000;
+
+    /**
+     * Row which was not imported
+     * @param line Line number in imported file, starting from 1
+     * @param reason Why row was rejected
+     */
+    public record Rejection(long line, String reason) {
+        @Override
+        public String toString() {
+            return "line " + line + ": " + reason;
+        }
+    }
+
+    private final long startNanos = System.nanoTime();
+    private long elapsedNanos;
+    private long rowsRead;
+    private long imported;
+    private long rejected;
+    private final List<Rejection> rejections = new ArrayList<>();
+
+    void rowsRead(int rows) {
+        rowsRead += rows;
+    }
+
+    void imported(int rows) {
+        imported += rows;
+    }
+
+    void rejected(long line, String reason) {
+        rejected++;
+        if (rejections.size() < MAX_KEPT_REJECTIONS) rejections.add(new Rejection(line, reason));
+    }
+
+    void finish() {
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     *
+     * @return Number of data rows read from file, without header
+     */
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     *
+     * @return Rejected rows with reasons, in order of lines, at most {@value #MAX_KEPT_REJECTIONS}
+     */
+    public List<Rejection> getRejections() {
+        return Collections.unmodifiableList(rejections);
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    /**
+     *
+     * @return Number of read rows processed per second
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsRead * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Read %d rows, imported %d, rejected %d in %d ms (%.0f rows/s)",
+                rowsRead, imported, rejected, getElapsedMillis(), getRowsPerSecond());
+    }
+}
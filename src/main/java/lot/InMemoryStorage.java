@@ -0,0 +1,602 @@
+package lot;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Storage keeping flights, passengers and bookings in memory, behaving like {@link JdbcStorage} without a database server.
+ * Useful for tests, benchmarks and as a fast tier in front of database.
+ * <p> Lookups use hash indexes on flight number, passenger name and surname, and booking keys (flight and passenger, flight and seat).
+ * Bookings of a flight are changed under lock of that flight only, so bookings of different flights do not block each other.
+ * <p> Like database rows, stored flights are copied into new Flight objects on every read,
+ * while each passenger is represented by a single shared Passenger object.
+ * <p> Thread-safe.
+ */
+public class InMemoryStorage implements Storage {
+    private final AtomicInteger flightIds = new AtomicInteger();
+    private final AtomicInteger passengerIds = new AtomicInteger();
+    private final AtomicInteger bookingIds = new AtomicInteger();
+    private final ConcurrentSkipListMap<Integer, FlightRow> flights = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, FlightRow> flightsByNumber = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, Passenger> passengers = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, ConcurrentSkipListSet<Integer>> passengerIdsByName = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Set<Integer>> flightIdsByPassenger = new ConcurrentHashMap<>();
+
+    private record Booking(int id, int passengerId, int seatNo) {
+    }
+
+    /**
+     * Stored flight, all fields except id and number are guarded by its monitor
+     */
+    private static class FlightRow {
+        private final int id;
+        private final String flightNumber;
+        private String originAirport;
+        private String destinationAirport;
+        private long departureTime;
+        private long estimatedArrivalTime;
+        private int availableSeats;
+        private final int maxSeats;
+        private final Map<Integer, Booking> bookingsByPassenger = new HashMap<>();
+        private final Map<Integer, Booking> bookingsBySeat = new HashMap<>();
+
+        private FlightRow(int id, Flight flight) {
+            this.id = id;
+            this.flightNumber = flight.getFlightNumber();
+            this.maxSeats = flight.getMaxNumberOfSeats();
+            this.availableSeats = flight.getAvailableSeats();
+            writeRouteAndTimes(flight);
+        }
+
+        private void writeRouteAndTimes(Flight flight) {
+            this.originAirport = flight.getOriginAirport();
+            this.destinationAirport = flight.getDestinationAirport();
+            this.departureTime = flight.getDepartureTime().getTime();
+            this.estimatedArrivalTime = flight.getEstimatedArrivalTime().getTime();
+        }
+
+        private void write(Flight flight, Flight.Column column) {
+            switch (column) {
+                case ORIGIN_AIRPORT -> this.originAirport = flight.getOriginAirport();
+                case DESTINATION_AIRPORT -> this.destinationAirport = flight.getDestinationAirport();
+                case DEPARTURE_TIME -> this.departureTime = flight.getDepartureTime().getTime();
+                case ESTIMATED_ARRIVAL_TIME -> this.estimatedArrivalTime = flight.getEstimatedArrivalTime().getTime();
+                case AVAILABLE_SEATS -> this.availableSeats += flight.getAvailableSeatsChange();
+            }
+        }
+
+        private void addBooking(Booking booking) {
+            bookingsByPassenger.put(booking.passengerId(), booking);
+            bookingsBySeat.put(booking.seatNo(), booking);
+        }
+
+        private Booking removeBooking(int passengerId) {
+            Booking booking = bookingsByPassenger.remove(passengerId);
+            if (booking != null) bookingsBySeat.remove(booking.seatNo());
+            return booking;
+        }
+    }
+
+    /**
+     * Names are compared case-insensitively, like by database collation
+     */
+    private static String nameKey(String name, String surname) {
+        return name.toUpperCase(Locale.ROOT) + '\0' + surname.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Copies stored flight into new Flight object
+     * @param withPassengers <code>false</code> to create flight which loads its passengers on demand
+     */
+    private Flight read(FlightRow row, boolean withPassengers) {
+        synchronized (row) {
+            return new Flight(row.id, row.flightNumber, row.originAirport, row.destinationAirport,
+                    new Timestamp(row.departureTime), new Timestamp(row.estimatedArrivalTime),
+                    row.availableSeats, row.maxSeats, withPassengers ? manifest(row) : null);
+        }
+    }
+
+    private Map<Passenger, Integer> manifest(FlightRow row) {
+        Map<Passenger, Integer> result = new HashMap<>();
+        synchronized (row) {
+            for (Booking booking : row.bookingsByPassenger.values()) {
+                result.put(passengers.get(booking.passengerId()), booking.seatNo());
+            }
+        }
+        return result;
+    }
+
+    private List<Flight> read(Collection<FlightRow> rows) {
+        List<Flight> list = new ArrayList<>(rows.size());
+        for (FlightRow row : rows) {
+            list.add(read(row, true));
+        }
+        return list;
+    }
+
+    /**
+     *
+     * @return Stored flight with id of given flight
+     * @throws IllegalArgumentException if flight is not stored
+     */
+    private FlightRow rowOf(Flight flight) throws IllegalArgumentException {
+        FlightRow row = flights.get(flight.getDbID());
+        if (row == null) throw new IllegalArgumentException("Flight " + flight.getFlightNumber() + " is not stored");
+        return row;
+    }
+
+    @Override
+    public boolean doesFlightExists(String flightNumber) {
+        return flightsByNumber.containsKey(flightNumber.toUpperCase());
+    }
+
+    @Override
+    public Flight getFlight(String flightNumber) {
+        FlightRow row = flightsByNumber.get(flightNumber.toUpperCase());
+        return row == null ? null : read(row, true);
+    }
+
+    @Override
+    public Map<Passenger, Integer> getPassengersOnFlight(int id) {
+        FlightRow row = flights.get(id);
+        return row == null ? new HashMap<>() : manifest(row);
+    }
+
+    @Override
+    public Map<Integer, Map<Passenger, Integer>> getPassengersOnFlights(Collection<Integer> flightIds) {
+        Map<Integer, Map<Passenger, Integer>> result = new HashMap<>();
+        for (int id : flightIds) {
+            result.put(id, getPassengersOnFlight(id));
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Flight, Integer> getAllPassengerFlights(Passenger passenger) {
+        Map<Flight, Integer> result = new HashMap<>();
+        for (int flightId : flightIdsByPassenger.getOrDefault(passenger.getDbID(), Set.of())) {
+            FlightRow row = flights.get(flightId);
+            if (row == null) continue;
+            synchronized (row) {
+                Booking booking = row.bookingsByPassenger.get(passenger.getDbID());
+                if (booking != null) result.put(read(row, true), booking.seatNo());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Passenger, Map<Flight, Integer>> getAllPassengersFlights(Collection<Passenger> requested) {
+        Map<Passenger, Map<Flight, Integer>> result = new HashMap<>();
+        Map<Integer, Flight> flightsById = new HashMap<>();
+        for (Passenger passenger : requested) {
+            Map<Flight, Integer> passengerFlights = new HashMap<>();
+            for (int flightId : flightIdsByPassenger.getOrDefault(passenger.getDbID(), Set.of())) {
+                FlightRow row = flights.get(flightId);
+                if (row == null) continue;
+                synchronized (row) {
+                    Booking booking = row.bookingsByPassenger.get(passenger.getDbID());
+                    if (booking != null) passengerFlights.put(flightsById.computeIfAbsent(flightId, id -> read(row, true)), booking.seatNo());
+                }
+            }
+            result.put(passenger, passengerFlights);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean doesPassengerExists(String name, String surname) {
+        Set<Integer> ids = passengerIdsByName.get(nameKey(name, surname));
+        return ids != null && !ids.isEmpty();
+    }
+
+    @Override
+    public Passenger getPassenger(String name, String surname) {
+        ConcurrentSkipListSet<Integer> ids = passengerIdsByName.get(nameKey(name, surname));
+        Integer id = ids == null ? null : ids.ceiling(0);
+        return id == null ? null : passengers.get(id);
+    }
+
+    @Override
+    public void deletePassenger(int id) {
+        Passenger passenger = passengers.remove(id);
+        if (passenger == null) {
+            System.out.println("No passenger with id: " + id + " found in database");
+            return;
+        }
+        Set<Integer> ids = passengerIdsByName.get(nameKey(passenger.getName(), passenger.getSurname()));
+        if (ids != null) ids.remove(id);
+        // Like database cascade, bookings are removed without giving seats back
+        for (int flightId : flightIdsByPassenger.getOrDefault(id, Set.of())) {
+            FlightRow row = flights.get(flightId);
+            if (row == null) continue;
+            synchronized (row) {
+                row.removeBooking(id);
+            }
+        }
+        flightIdsByPassenger.remove(id);
+        System.out.println("Passenger with id: " + id + " deleted successfully");
+    }
+
+    @Override
+    public int addFlight(Flight flight) {
+        FlightRow row = new FlightRow(flightIds.incrementAndGet(), flight);
+        if (flightsByNumber.putIfAbsent(row.flightNumber, row) != null) {
+            System.out.println("Flight " + row.flightNumber + " already exists in database");
+            return -1;
+        }
+        flights.put(row.id, row);
+        return row.id;
+    }
+
+    @Override
+    public void deleteFlight(String flightNumber) {
+        FlightRow row = flightsByNumber.remove(flightNumber.toUpperCase());
+        if (row == null) {
+            System.out.println("No flight " + flightNumber + " found in database");
+            return;
+        }
+        flights.remove(row.id);
+        synchronized (row) {
+            for (int passengerId : row.bookingsByPassenger.keySet()) {
+                Set<Integer> flightsOfPassenger = flightIdsByPassenger.get(passengerId);
+                if (flightsOfPassenger != null) flightsOfPassenger.remove(row.id);
+            }
+            row.bookingsByPassenger.clear();
+            row.bookingsBySeat.clear();
+        }
+        System.out.println("Flight " + flightNumber + " deleted successfully");
+    }
+
+    @Override
+    public void updateFlight(Flight flight) {
+        FlightRow row = flights.get(flight.getDbID());
+        if (row == null) return;
+        synchronized (row) {
+            row.writeRouteAndTimes(flight);
+        }
+        System.out.println("Updated flight " + flight.getFlightNumber() + " info");
+    }
+
+    @Override
+    public void updateChanged(Map<Flight, Set<Flight.Column>> changedFlights, Collection<Passenger> changedPassengers) {
+        for (Map.Entry<Flight, Set<Flight.Column>> entry : changedFlights.entrySet()) {
+            FlightRow row = flights.get(entry.getKey().getDbID());
+            if (row == null) continue;
+            synchronized (row) {
+                for (Flight.Column column : entry.getValue()) {
+                    row.write(entry.getKey(), column);
+                }
+            }
+        }
+        for (Passenger passenger : changedPassengers) {
+            updatePassenger(passenger);
+        }
+    }
+
+    @Override
+    public void updatePassenger(Passenger passenger) {
+        Passenger stored = passengers.get(passenger.getDbID());
+        if (stored == null) return;
+        if (stored != passenger) stored.refreshPhoneNumber(passenger.getPhoneNumber());
+        System.out.println("Updated passenger " + passenger.getFullName() + " info");
+    }
+
+    @Override
+    public int addPassenger(Passenger passenger) {
+        int id = passengerIds.incrementAndGet();
+        passenger.setDbID(id);
+        passengers.put(id, passenger);
+        passengerIdsByName.computeIfAbsent(nameKey(passenger.getName(), passenger.getSurname()), key -> new ConcurrentSkipListSet<>()).add(id);
+        return id;
+    }
+
+    @Override
+    public List<Flight> getAllFlights() {
+        return read(flights.values());
+    }
+
+    @Override
+    public List<Flight> getFlightsByIds(Collection<Integer> flightIds) {
+        List<Flight> list = new ArrayList<>(flightIds.size());
+        for (int id : flightIds) {
+            FlightRow row = flights.get(id);
+            if (row != null) list.add(read(row, false));
+        }
+        return list;
+    }
+
+    @Override
+    public List<Flight> getAllFlightsOnRoute(String originAirport, String destinationAirport, boolean includeOppositeDirection) {
+        FlightFilter filter = new FlightFilter().route(originAirport + "-" + destinationAirport, includeOppositeDirection);
+        List<Flight> list = new ArrayList<>();
+        for (FlightRow row : flights.values()) {
+            synchronized (row) {
+                if (matches(row, filter)) list.add(read(row, true));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public List<Flight> getFlightsDepartingInNextHours(int hours) {
+        long now = System.currentTimeMillis();
+        FlightFilter filter = new FlightFilter().departingBetween(new Timestamp(now), new Timestamp(now + hours * 3_600_000L));
+        List<Flight> list = new ArrayList<>();
+        for (FlightRow row : flights.values()) {
+            synchronized (row) {
+                if (matches(row, filter)) list.add(read(row, true));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public List<Flight> getFlightsWithAvailableSeats(int minimumSeats) {
+        List<Flight> list = new ArrayList<>();
+        for (FlightRow row : flights.values()) {
+            synchronized (row) {
+                if (row.availableSeats >= minimumSeats) list.add(read(row, true));
+            }
+        }
+        list.sort(Comparator.comparingInt(Flight::getAvailableSeats).reversed());
+        return list;
+    }
+
+    @Override
+    public List<Flight> getFlightsWithMostAvailableSeats(int count) {
+        List<Flight> list = getFlightsWithAvailableSeats(Integer.MIN_VALUE);
+        return new ArrayList<>(list.subList(0, Math.min(count, list.size())));
+    }
+
+    @Override
+    public List<Passenger> getAllPassengers() {
+        return new ArrayList<>(passengers.values());
+    }
+
+    @Override
+    public Set<String> getExistingFlightNumbers(Collection<String> flightNumbers) {
+        Set<String> existing = new HashSet<>();
+        for (String flightNumber : flightNumbers) {
+            if (flightsByNumber.containsKey(flightNumber)) existing.add(flightNumber);
+        }
+        return existing;
+    }
+
+    @Override
+    public List<Passenger> getExistingPassengers(Collection<Passenger> candidates) {
+        Set<Integer> ids = new HashSet<>();
+        for (Passenger candidate : candidates) {
+            Set<Integer> sameName = passengerIdsByName.get(nameKey(candidate.getName(), candidate.getSurname()));
+            if (sameName != null) ids.addAll(sameName);
+        }
+        List<Passenger> existing = new ArrayList<>();
+        for (int id : ids) {
+            Passenger passenger = passengers.get(id);
+            if (passenger != null) existing.add(passenger);
+        }
+        return existing;
+    }
+
+    /**
+     * Filters all flights, as there is no index on departure time
+     */
+    @Override
+    public List<Flight> getFlightsPage(FlightFilter filter, Flight after, int pageSize) {
+        if (filter == null) filter = new FlightFilter();
+        List<Flight> matching = new ArrayList<>();
+        for (FlightRow row : flights.values()) {
+            synchronized (row) {
+                if (!matches(row, filter)) continue;
+                if (after != null) {
+                    long afterDeparture = after.getDepartureTime().getTime();
+                    if (row.departureTime < afterDeparture || (row.departureTime == afterDeparture && row.id <= after.getDbID())) continue;
+                }
+                matching.add(read(row, true));
+            }
+        }
+        matching.sort(Comparator.comparing(Flight::getDepartureTime).thenComparingInt(Flight::getDbID));
+        return new ArrayList<>(matching.subList(0, Math.min(pageSize, matching.size())));
+    }
+
+    @Override
+    public List<Flight> getAllFlightsFromAirport(String originAirport) {
+        List<Flight> list = new ArrayList<>();
+        for (FlightRow row : flights.values()) {
+            synchronized (row) {
+                if (row.originAirport.equals(originAirport)) list.add(read(row, true));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Checks if flight matches all criteria of filter, has to be called holding lock of the flight
+     */
+    private static boolean matches(FlightRow row, FlightFilter filter) {
+        if (filter.getOriginAirport() != null) {
+            boolean sameDirection = row.originAirport.equals(filter.getOriginAirport()) && row.destinationAirport.equals(filter.getDestinationAirport());
+            boolean oppositeDirection = filter.isIncludeOppositeDirection()
+                    && row.originAirport.equals(filter.getDestinationAirport()) && row.destinationAirport.equals(filter.getOriginAirport());
+            if (!sameDirection && !oppositeDirection) return false;
+        }
+        if (filter.getDepartureFrom() != null && row.departureTime < filter.getDepartureFrom().getTime()) return false;
+        if (filter.getDepartureTo() != null && row.departureTime > filter.getDepartureTo().getTime()) return false;
+        return row.availableSeats >= filter.getMinimumSeats();
+    }
+
+    @Override
+    public List<Passenger> getPassengersPage(Passenger after, int pageSize) {
+        List<Passenger> list = new ArrayList<>(pageSize);
+        for (Passenger passenger : passengers.tailMap(after == null ? 0 : after.getDbID(), false).values()) {
+            if (list.size() == pageSize) break;
+            list.add(passenger);
+        }
+        return list;
+    }
+
+    /**
+     * Streams flights directly from memory, so fetch size is ignored
+     */
+    @Override
+    public Stream<Flight> streamAllFlights(int fetchSize) {
+        return flights.values().stream().map(row -> read(row, false));
+    }
+
+    /**
+     * Streams passengers directly from memory, so fetch size is ignored
+     */
+    @Override
+    public Stream<Passenger> streamAllPassengers(int fetchSize) {
+        return passengers.values().stream();
+    }
+
+    @Override
+    public int addPassengerToFlight(Passenger passenger, Flight flight, int seatNo) {
+        FlightRow row = flights.get(flight.getDbID());
+        if (row == null || !passengers.containsKey(passenger.getDbID())) return -1;
+        synchronized (row) {
+            if (row.bookingsByPassenger.containsKey(passenger.getDbID()) || row.bookingsBySeat.containsKey(seatNo)) return -1;
+            return book(row, passenger, seatNo);
+        }
+    }
+
+    /**
+     * Inserts booking, has to be called holding lock of the flight
+     * @return Booking id
+     */
+    private int book(FlightRow row, Passenger passenger, int seatNo) {
+        Booking booking = new Booking(bookingIds.incrementAndGet(), passenger.getDbID(), seatNo);
+        row.addBooking(booking);
+        flightIdsByPassenger.computeIfAbsent(passenger.getDbID(), id -> ConcurrentHashMap.newKeySet()).add(row.id);
+        return booking.id();
+    }
+
+    @Override
+    public BookingResult bookSeat(Passenger passenger, Flight flight, int seatNo) {
+        FlightRow row = flights.get(flight.getDbID());
+        if (row == null) return BookingResult.failed(BookingResult.Status.FLIGHT_NOT_FOUND);
+        if (!passengers.containsKey(passenger.getDbID())) throw new IllegalArgumentException("Passenger " + passenger.getFullName() + " is not stored");
+        synchronized (row) {
+            if (row.availableSeats <= 0) return BookingResult.failed(BookingResult.Status.FLIGHT_FULL);
+            if (row.bookingsByPassenger.containsKey(passenger.getDbID())) return BookingResult.failed(BookingResult.Status.ALREADY_BOOKED);
+            if (row.bookingsBySeat.containsKey(seatNo)) return BookingResult.failed(BookingResult.Status.SEAT_TAKEN);
+            row.availableSeats--;
+            return new BookingResult(BookingResult.Status.BOOKED, book(row, passenger, seatNo));
+        }
+    }
+
+    @Override
+    public boolean cancelBooking(Passenger passenger, Flight flight) {
+        FlightRow row = flights.get(flight.getDbID());
+        if (row == null) return false;
+        synchronized (row) {
+            if (!unbook(row, passenger)) return false;
+            row.availableSeats++;
+            return true;
+        }
+    }
+
+    @Override
+    public void removePassengerFromFlight(Passenger passenger, Flight flight) {
+        FlightRow row = flights.get(flight.getDbID());
+        if (row == null) return;
+        synchronized (row) {
+            unbook(row, passenger);
+        }
+    }
+
+    /**
+     * Removes booking, has to be called holding lock of the flight
+     * @return <code>true</code> if passenger had booking on flight
+     */
+    private boolean unbook(FlightRow row, Passenger passenger) {
+        if (row.removeBooking(passenger.getDbID()) == null) return false;
+        Set<Integer> flightsOfPassenger = flightIdsByPassenger.get(passenger.getDbID());
+        if (flightsOfPassenger != null) flightsOfPassenger.remove(row.id);
+        return true;
+    }
+
+    /**
+     * Adds all flights or none of them if any flight number is already used
+     */
+    @Override
+    public int[] addFlights(List<Flight> newFlights) {
+        List<FlightRow> added = new ArrayList<>(newFlights.size());
+        for (Flight flight : newFlights) {
+            FlightRow row = new FlightRow(flightIds.incrementAndGet(), flight);
+            if (flightsByNumber.putIfAbsent(row.flightNumber, row) != null) {
+                for (FlightRow addedRow : added) {
+                    flightsByNumber.remove(addedRow.flightNumber, addedRow);
+                }
+                throw new IllegalArgumentException("Flight " + row.flightNumber + " already exists in database");
+            }
+            added.add(row);
+        }
+
+        int[] ids = new int[added.size()];
+        for (int i = 0; i < ids.length; i++) {
+            FlightRow row = added.get(i);
+            flights.put(row.id, row);
+            newFlights.get(i).setDbID(row.id);
+            ids[i] = row.id;
+        }
+        return ids;
+    }
+
+    @Override
+    public int[] addPassengers(List<Passenger> newPassengers) {
+        int[] ids = new int[newPassengers.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = addPassenger(newPassengers.get(i));
+        }
+        return ids;
+    }
+
+    /**
+     * Adds all bookings or none of them if any seat or passenger is already booked
+     */
+    @Override
+    public int[] addBookings(Flight flight, Map<Passenger, Integer> passengersAndSeats) {
+        FlightRow row = rowOf(flight);
+        int[] ids = new int[passengersAndSeats.size()];
+        synchronized (row) {
+            Set<Integer> seats = new HashSet<>();
+            for (Map.Entry<Passenger, Integer> entry : passengersAndSeats.entrySet()) {
+                if (!passengers.containsKey(entry.getKey().getDbID())) throw new IllegalArgumentException("Passenger " + entry.getKey().getFullName() + " is not stored");
+                if (row.bookingsByPassenger.containsKey(entry.getKey().getDbID())) throw new IllegalArgumentException("Passenger " + entry.getKey().getFullName() + " already assigned to flight");
+                if (row.bookingsBySeat.containsKey(entry.getValue()) || !seats.add(entry.getValue())) throw new IllegalArgumentException("Seat " + entry.getValue() + " is already booked");
+            }
+            int i = 0;
+            for (Map.Entry<Passenger, Integer> entry : passengersAndSeats.entrySet()) {
+                ids[i++] = book(row, entry.getKey(), entry.getValue());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Removes all stored data
+     */
+    @Override
+    public void close() {
+        flights.clear();
+        flightsByNumber.clear();
+        passengers.clear();
+        passengerIdsByName.clear();
+        flightIdsByPassenger.clear();
+    }
+}
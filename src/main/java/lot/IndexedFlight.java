@@ -0,0 +1,43 @@
+package lot;
+
+import java.sql.Timestamp;
+
+/**
+ * Immutable copy of flight info kept by in-memory indexes, without passengers
+ */
+record IndexedFlight(long departureTime, int id, String flightNumber, String originAirport, String destinationAirport,
+                     long estimatedArrivalTime, int availableSeats, int maxSeats) {
+
+    /**
+     * Position of flight in index, ordered by departure time and then by id
+     */
+    record Key(long departureTime, int id) implements Comparable<Key> {
+        @Override
+        public int compareTo(Key other) {
+            int byDeparture = Long.compare(departureTime, other.departureTime);
+            return byDeparture != 0 ? byDeparture : Integer.compare(id, other.id);
+        }
+    }
+
+    static IndexedFlight of(Flight flight) {
+        return new IndexedFlight(flight.getDepartureTime().getTime(), flight.getDbID(), flight.getFlightNumber(), flight.getOriginAirport(),
+                flight.getDestinationAirport(), flight.getEstimatedArrivalTime().getTime(), flight.getAvailableSeats(), flight.getMaxNumberOfSeats());
+    }
+
+    Key key() {
+        return new Key(departureTime, id);
+    }
+
+    IndexedFlight withAvailableSeats(int seats) {
+        return new IndexedFlight(departureTime, id, flightNumber, originAirport, destinationAirport, estimatedArrivalTime, seats, maxSeats);
+    }
+
+    /**
+     *
+     * @return New flight object, its passengers are loaded from database only if needed
+     */
+    Flight toFlight() {
+        return new Flight(id, flightNumber, originAirport, destinationAirport, new Timestamp(departureTime),
+                new Timestamp(estimatedArrivalTime), availableSeats, maxSeats);
+    }
+}
@@ -0,0 +1,1419 @@
+package lot;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Storage keeping flights, passengers and bookings in MySQL / MariaDB database, accessed through connection pool.
+ * <p> Each passenger row is represented by a single shared Passenger object until storage is closed.
+ * <p> With change log enabled every mutation is also recorded in <code>change_log</code> table in the same transaction,
+ * so other application instances can keep their in-memory caches and indexes up to date, see {@link ChangeLogPoller}.
+ */
+public class JdbcStorage implements Storage {
+    private static final int FLIGHT_ID_BATCH_SIZE = 1000;
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final int BOOKING_ATTEMPTS = 3;
+    // MySQL error codes of integrity constraint violations
+    private static final int DUPLICATE_ENTRY = 1062;
+    private static final int MISSING_REFERENCED_ROW = 1452;
+    // Unique indexes of bookings, see V3__booking_constraints.sql
+    private static final String FLIGHT_SEAT_INDEX = "idx_flight_seat";
+    private static final String FLIGHT_PASSENGER_INDEX = "idx_flight_passenger";
+    private static final String INSERT_FLIGHT_SQL = "INSERT INTO flights (flight_number, origin_airport, destination_airport, departure_time, estimated_arrival_time, available_seats, max_seats) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_PASSENGER_SQL = "INSERT INTO passengers (name, surname, phone_number) VALUES (?, ?, ?)";
+    private static final String INSERT_BOOKING_SQL = "INSERT INTO bookings (flight_id, passenger_id, seat_number) VALUES (?, ?, ?)";
+    private static final String INSERT_CHANGE_SQL = "INSERT INTO change_log (change_type, flight_id, flight_number, passenger_id, node_id) VALUES (?, ?, ?, ?, ?)";
+    private final ConnectionPool pool;
+    private final PassengerIdentityMap passengers = new PassengerIdentityMap();
+    private final boolean changeLog;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * Uses given connection pool and applies schema migrations missing in connected database.
+     * Change log is enabled by system property <code>lot.db.changeLog=true</code>.
+     * @param pool Connection pool shared by all storage operations
+     */
+    public JdbcStorage(ConnectionPool pool) {
+        this(pool, Boolean.getBoolean("lot.db.changeLog"));
+    }
+
+    /**
+     * Uses given connection pool and applies schema migrations missing in connected database
+     * @param pool Connection pool shared by all storage operations
+     * @param changeLog Should mutations be recorded in change log, read by {@link ChangeLogPoller} of other application instances
+     */
+    public JdbcStorage(ConnectionPool pool, boolean changeLog) {
+        this.pool = pool;
+        this.changeLog = changeLog;
+        try {
+            SchemaMigrator.migrate(pool);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     *
+     * @return Connection pool used by all storage operations
+     */
+    public ConnectionPool getConnectionPool() {
+        return pool;
+    }
+
+    @Override
+    public boolean doesFlightExists(String flightNumber) {
+        String sql = "SELECT COUNT(*) FROM flights WHERE flight_number = ?";
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setString(1, flightNumber);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return resultSet.getInt(1) > 0;
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        return false;
+    }
+
+    @Override
+    public Flight getFlight(String flightNumber) {
+        String sql = "SELECT * FROM flights WHERE flight_number = ?";
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setString(1, flightNumber);
+            List<Flight> flights = readFlightsWithPassengers(connection, statement);
+            if (!flights.isEmpty()) {
+                return flights.get(0);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return null;
+    }
+
+    @Override
+    public Map<Passenger, Integer> getPassengersOnFlight(int id) {
+        Map<Passenger, Integer> result = new HashMap<>();
+        String sql = "SELECT p.*, b.seat_number FROM passengers p JOIN bookings b on p.id = b.passenger_id WHERE b.flight_id = ?";
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setInt(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    result.put(readPassenger(resultSet), resultSet.getInt("seat_number"));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        return result;
+    }
+
+    /**
+     * Loads passengers of many flights at once, in batches of at most {@value #FLIGHT_ID_BATCH_SIZE} flight ids per query
+     * @param flightIds Flight database ids
+     * @return Map: key -> Flight database id <p> value -> Map: key -> Passenger object, value -> booked seat number
+     */
+    @Override
+    public Map<Integer, Map<Passenger, Integer>> getPassengersOnFlights(Collection<Integer> flightIds) {
+        Map<Integer, Map<Passenger, Integer>> result = new HashMap<>();
+        for (int id : flightIds) {
+            result.put(id, new HashMap<>());
+        }
+        try (PooledConnection connection = pool.borrow()) {
+            fillPassengersOnFlights(connection, result);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Fills given (empty) manifests with passengers booked on corresponding flights
+     * @param manifests Map: key -> Flight database id <p> value -> manifest to fill
+     */
+    private void fillPassengersOnFlights(PooledConnection connection, Map<Integer, Map<Passenger, Integer>> manifests) throws SQLException {
+        List<Integer> ids = new ArrayList<>(manifests.keySet());
+        for (int from = 0; from < ids.size(); from += FLIGHT_ID_BATCH_SIZE) {
+            List<Integer> batch = ids.subList(from, Math.min(from + FLIGHT_ID_BATCH_SIZE, ids.size()));
+            String placeholders = String.join(", ", Collections.nCopies(batch.size(), "?"));
+            String sql = "SELECT p.*, b.flight_id, b.seat_number FROM passengers p JOIN bookings b on p.id = b.passenger_id WHERE b.flight_id IN (" + placeholders + ")";
+            try (PreparedStatement statement = connection.prepareUncachedStatement(sql)) {
+                for (int i = 0; i < batch.size(); i++) {
+                    statement.setInt(i + 1, batch.get(i));
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        manifests.get(resultSet.getInt("flight_id")).put(readPassenger(resultSet), resultSet.getInt("seat_number"));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps current result set row to Flight object
+     * @param resultSet Result set positioned on a row of <code>flights</code> table
+     * @param passengersAndSeats Manifest of the flight, <code>null</code> to load it on demand
+     */
+    private Flight readFlight(ResultSet resultSet, Map<Passenger, Integer> passengersAndSeats) throws SQLException {
+        return new Flight(
+                resultSet.getInt("id"),
+                resultSet.getString("flight_number"),
+                resultSet.getString("origin_airport"),
+                resultSet.getString("destination_airport"),
+                resultSet.getTimestamp("departure_time"),
+                resultSet.getTimestamp("estimated_arrival_time"),
+                resultSet.getInt("available_seats"),
+                resultSet.getInt("max_seats"),
+                passengersAndSeats
+        );
+    }
+
+    /**
+     * Maps current result set row to Passenger object shared by all queries of the session
+     * @param resultSet Result set positioned on a row of <code>passengers</code> table
+     */
+    private Passenger readPassenger(ResultSet resultSet) throws SQLException {
+        return passengers.resolve(
+                resultSet.getInt("id"),
+                resultSet.getString("name"),
+                resultSet.getString("surname"),
+                resultSet.getString("phone_number")
+        );
+    }
+
+    /**
+     * Executes flights query and loads passengers of all returned flights with set-based queries instead of one query per flight.
+     * In lazy loading mode passengers are not loaded at all.
+     * @param statement Prepared statement selecting rows of <code>flights</code> table
+     * @return List of flights in order returned by the query
+     */
+    private List<Flight> readFlightsWithPassengers(PooledConnection connection, PreparedStatement statement) throws SQLException {
+        List<Flight> flights = new ArrayList<>();
+        Map<Integer, Map<Passenger, Integer>> manifests = new HashMap<>();
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                Map<Passenger, Integer> passengersAndSeats = Database.isLazyLoading() ? null : new HashMap<>();
+                Flight flight = readFlight(resultSet, passengersAndSeats);
+                if (passengersAndSeats != null) manifests.put(flight.getDbID(), passengersAndSeats);
+                flights.add(flight);
+            }
+        }
+        fillPassengersOnFlights(connection, manifests);
+        return flights;
+    }
+
+    @Override
+    public Map<Flight, Integer> getAllPassengerFlights(Passenger passenger) {
+        Map<Flight, Integer> flights = new HashMap<>();
+        Map<Integer, Map<Passenger, Integer>> manifests = new HashMap<>();
+        String sql = "SELECT f.*, b.seat_number FROM flights f JOIN bookings b on f.id = b.flight_id WHERE b.passenger_id = ?";
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setInt(1, passenger.getDbID());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    Map<Passenger, Integer> passengersAndSeats = Database.isLazyLoading() ? null : new HashMap<>();
+                    Flight f = readFlight(resultSet, passengersAndSeats);
+                    if (passengersAndSeats != null) manifests.put(f.getDbID(), passengersAndSeats);
+
+                    flights.put(f, resultSet.getInt("seat_number"));
+                }
+            }
+            fillPassengersOnFlights(connection, manifests);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        return flights;
+    }
+
+    /**
+     * Loads bookings of many passengers with IN queries of at most {@value #LOOKUP_BATCH_SIZE} passenger ids.
+     * Flight booked by several of given passengers is read once, its passengers are loaded with set-based queries.
+     */
+    @Override
+    public Map<Passenger, Map<Flight, Integer>> getAllPassengersFlights(Collection<Passenger> requested) {
+        Map<Passenger, Map<Flight, Integer>> result = new HashMap<>();
+        Map<Integer, Map<Flight, Integer>> flightsByPassengerId = new HashMap<>();
+        for (Passenger passenger : requested) {
+            result.put(passenger, flightsByPassengerId.computeIfAbsent(passenger.getDbID(), id -> new HashMap<>()));
+        }
+
+        Map<Integer, Flight> flightsById = new HashMap<>();
+        Map<Integer, Map<Passenger, Integer>> manifests = new HashMap<>();
+        List<Integer> ids = new ArrayList<>(flightsByPassengerId.keySet());
+        try (PooledConnection connection = pool.borrow()) {
+            for (int from = 0; from < ids.size(); from += LOOKUP_BATCH_SIZE) {
+                List<Integer> batch = ids.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, ids.size()));
+                String placeholders = String.join(", ", Collections.nCopies(batch.size(), "?"));
+                String sql = "SELECT f.*, b.passenger_id, b.seat_number FROM bookings b JOIN flights f ON f.id = b.flight_id WHERE b.passenger_id IN (" + placeholders + ")";
+                try (PreparedStatement statement = connection.prepareUncachedStatement(sql)) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        statement.setInt(i + 1, batch.get(i));
+                    }
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            Flight flight = flightsById.get(resultSet.getInt("id"));
+                            if (flight == null) {
+                                Map<Passenger, Integer> passengersAndSeats = Database.isLazyLoading() ? null : new HashMap<>();
+                                flight = readFlight(resultSet, passengersAndSeats);
+                                if (passengersAndSeats != null) manifests.put(flight.getDbID(), passengersAndSeats);
+                                flightsById.put(flight.getDbID(), flight);
+                            }
+                            flightsByPassengerId.get(resultSet.getInt("passenger_id")).put(flight, resultSet.getInt("seat_number"));
+                        }
+                    }
+                }
+            }
+            fillPassengersOnFlights(connection, manifests);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean doesPassengerExists(String name, String surname) {
+        String sql = "SELECT COUNT(*) FROM passengers WHERE name = ? AND surname = ?";
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setString(1, name);
+            statement.setString(2, surname);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return resultSet.getInt(1) > 0;
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return false;
+    }
+
+    @Override
+    public Passenger getPassenger(String name, String surname) {
+        String sql = "SELECT * FROM passengers WHERE name = ? AND surname = ?";
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setString(1, name);
+            statement.setString(2, surname);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return readPassenger(resultSet);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return null;
+    }
+
+    @Override
+    public void deletePassenger(int id) {
+        passengers.remove(id);
+        String sql = "DELETE FROM passengers WHERE id = ?";
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            preparedStatement.setInt(1, id);
+
+            int rowsAffected = logged(connection, () -> {
+                int rows = preparedStatement.executeUpdate();
+                if (rows > 0) logChange(connection, Change.ofPassenger(Change.Type.PASSENGER_DELETED, id));
+                return rows;
+            });
+
+            if (rowsAffected > 0) {
+                System.out.println("Passenger with id: " + id + " deleted successfully");
+            } else {
+                System.out.println("No passenger with id: " + id + " found in database");
+            }
+        } catch (SQLException e) {
+            failed(e);
+        }
+    }
+
+    @Override
+    public int addFlight(Flight flight) {
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement preparedStatement = connection.prepareStatement(INSERT_FLIGHT_SQL, Statement.RETURN_GENERATED_KEYS);
+            bindFlight(preparedStatement, flight);
+
+            return logged(connection, () -> {
+                preparedStatement.executeUpdate();
+                int id = readGeneratedKeys(preparedStatement, 1)[0];
+                logChange(connection, Change.ofFlight(Change.Type.FLIGHT_SAVED, id, flight.getFlightNumber()));
+                return id;
+            });
+
+        } catch (SQLException e) {
+            failed(e);
+            return -1;
+        }
+    }
+
+    @Override
+    public void deleteFlight(String flightNumber) {
+        String sql = "DELETE FROM flights WHERE flight_number = ?";
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            preparedStatement.setString(1, flightNumber);
+
+            int rowsAffected = logged(connection, () -> {
+                int rows = preparedStatement.executeUpdate();
+                if (rows > 0) logChange(connection, Change.ofFlight(Change.Type.FLIGHT_DELETED, 0, flightNumber));
+                return rows;
+            });
+
+            if (rowsAffected > 0) {
+                System.out.println("Flight " + flightNumber + " deleted successfully");
+            } else {
+                System.out.println("No flight " + flightNumber + " found in database");
+            }
+        } catch (SQLException e) {
+            failed(e);
+        }
+    }
+
+    @Override
+    public void updateFlight(Flight flight) {
+        String sqlQuery = "UPDATE flights SET origin_airport = ?, destination_airport = ?, departure_time = ?, estimated_arrival_time = ? WHERE id = ?";
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement preparedStatement = connection.prepareStatement(sqlQuery);
+            preparedStatement.setString(1, flight.getOriginAirport());
+            preparedStatement.setString(2, flight.getDestinationAirport());
+            preparedStatement.setTimestamp(3, flight.getDepartureTime());
+            preparedStatement.setTimestamp(4, flight.getEstimatedArrivalTime());
+            preparedStatement.setInt(5, flight.getDbID());
+
+            int rowsAffected = logged(connection, () -> {
+                int rows = preparedStatement.executeUpdate();
+                if (rows > 0) logChange(connection, Change.ofFlight(Change.Type.FLIGHT_SAVED, flight.getDbID(), flight.getFlightNumber()));
+                return rows;
+            });
+
+            if (rowsAffected > 0) {
+                System.out.println("Updated flight " + flight.getFlightNumber() + " info");
+            }
+
+        } catch (SQLException e) {
+            failed(e);
+        }
+    }
+
+    /**
+     * Writes changes recorded by unit of work in a single transaction.
+     * Each flight gets one UPDATE of its changed columns only, updates of the same columns are sent as one batch.
+     * @param flights Map: key -> changed Flight object <p> value -> changed columns
+     * @param changedPassengers Passengers with changed phone number
+     */
+    @Override
+    public void updateChanged(Map<Flight, Set<Flight.Column>> flights, Collection<Passenger> changedPassengers) {
+        Map<Set<Flight.Column>, List<Flight>> flightsByColumns = new LinkedHashMap<>();
+        for (Map.Entry<Flight, Set<Flight.Column>> entry : flights.entrySet()) {
+            flightsByColumns.computeIfAbsent(entry.getValue(), columns -> new ArrayList<>()).add(entry.getKey());
+        }
+
+        try (PooledConnection connection = pool.borrow()) {
+            connection.setAutoCommit(false);
+            try {
+                for (Map.Entry<Set<Flight.Column>, List<Flight>> group : flightsByColumns.entrySet()) {
+                    List<String> assignments = new ArrayList<>();
+                    for (Flight.Column column : group.getKey()) {
+                        // Seats are changed relatively, so bookings made meanwhile are not undone
+                        assignments.add(column == Flight.Column.AVAILABLE_SEATS
+                                ? column.getColumnName() + " = " + column.getColumnName() + " + ?"
+                                : column.getColumnName() + " = ?");
+                    }
+                    PreparedStatement preparedStatement = connection.prepareStatement("UPDATE flights SET " + String.join(", ", assignments) + " WHERE id = ?");
+                    for (Flight flight : group.getValue()) {
+                        int i = 1;
+                        for (Flight.Column column : group.getKey()) {
+                            switch (column) {
+                                case ORIGIN_AIRPORT -> preparedStatement.setString(i++, flight.getOriginAirport());
+                                case DESTINATION_AIRPORT -> preparedStatement.setString(i++, flight.getDestinationAirport());
+                                case DEPARTURE_TIME -> preparedStatement.setTimestamp(i++, flight.getDepartureTime());
+                                case ESTIMATED_ARRIVAL_TIME -> preparedStatement.setTimestamp(i++, flight.getEstimatedArrivalTime());
+                                case AVAILABLE_SEATS -> preparedStatement.setInt(i++, flight.getAvailableSeatsChange());
+                            }
+                        }
+                        preparedStatement.setInt(i, flight.getDbID());
+                        preparedStatement.addBatch();
+                    }
+                    preparedStatement.executeBatch();
+                }
+
+                if (!changedPassengers.isEmpty()) {
+                    PreparedStatement preparedStatement = connection.prepareStatement("UPDATE passengers SET phone_number = ? WHERE id = ?");
+                    for (Passenger passenger : changedPassengers) {
+                        preparedStatement.setString(1, passenger.getPhoneNumber());
+                        preparedStatement.setInt(2, passenger.getDbID());
+                        preparedStatement.addBatch();
+                    }
+                    preparedStatement.executeBatch();
+                }
+
+                List<Change> changes = new ArrayList<>();
+                for (Flight flight : flights.keySet()) {
+                    changes.add(Change.ofFlight(Change.Type.FLIGHT_SAVED, flight.getDbID(), flight.getFlightNumber()));
+                }
+                for (Passenger passenger : changedPassengers) {
+                    changes.add(Change.ofPassenger(Change.Type.PASSENGER_SAVED, passenger.getDbID()));
+                }
+                logChanges(connection, changes);
+
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void updatePassenger(Passenger passenger) {
+        String sqlQuery = "UPDATE passengers SET phone_number = ? WHERE id = ?";
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement preparedStatement = connection.prepareStatement(sqlQuery);
+            preparedStatement.setString(1, passenger.getPhoneNumber());
+            preparedStatement.setInt(2, passenger.getDbID());
+
+            int rowsAffected = logged(connection, () -> {
+                int rows = preparedStatement.executeUpdate();
+                if (rows > 0) logChange(connection, Change.ofPassenger(Change.Type.PASSENGER_SAVED, passenger.getDbID()));
+                return rows;
+            });
+
+            if (rowsAffected > 0) {
+                System.out.println("Updated passenger " + passenger.getFullName() + " info");
+            }
+
+        } catch (SQLException e) {
+            failed(e);
+        }
+    }
+
+    @Override
+    public int addPassenger(Passenger passenger) {
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement preparedStatement = connection.prepareStatement(INSERT_PASSENGER_SQL, Statement.RETURN_GENERATED_KEYS);
+            bindPassenger(preparedStatement, passenger);
+
+            int id = logged(connection, () -> {
+                preparedStatement.executeUpdate();
+                int generatedId = readGeneratedKeys(preparedStatement, 1)[0];
+                logChange(connection, Change.ofPassenger(Change.Type.PASSENGER_SAVED, generatedId));
+                return generatedId;
+            });
+            passenger.setDbID(id);
+            passengers.register(passenger);
+            return id;
+
+        } catch (SQLException e) {
+            failed(e);
+            return -1;
+        }
+    }
+
+    @Override
+    public List<Flight> getAllFlights() {
+        List<Flight> flights = new ArrayList<>();
+        String sql = "SELECT * FROM flights";
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            flights = readFlightsWithPassengers(connection, statement);
+        } catch (SQLException e) {
+            failed(e);
+        }
+        return flights;
+    }
+
+    @Override
+    public List<Flight> getAllFlightsOnRoute(String originAirport, String destinationAirport, boolean includeOppositeDirection) {
+        List<Flight> list = new ArrayList<>();
+        String sql = includeOppositeDirection
+                ? "SELECT * FROM flights WHERE (origin_airport = ? AND destination_airport = ?) OR (origin_airport = ? AND destination_airport = ?)"
+                : "SELECT * FROM flights WHERE origin_airport = ? AND destination_airport = ?";
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            preparedStatement.setString(1, originAirport);
+            preparedStatement.setString(2, destinationAirport);
+            if (includeOppositeDirection) {
+                preparedStatement.setString(3, destinationAirport);
+                preparedStatement.setString(4, originAirport);
+            }
+
+            list = readFlightsWithPassengers(connection, preparedStatement);
+
+        } catch (SQLException e) {
+            failed(e);
+        }
+        return list;
+    }
+
+    @Override
+    public List<Flight> getAllFlightsFromAirport(String originAirport) {
+        List<Flight> list = new ArrayList<>();
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement preparedStatement = connection.prepareStatement("SELECT * FROM flights WHERE origin_airport = ?");
+            preparedStatement.setString(1, originAirport);
+
+            list = readFlightsWithPassengers(connection, preparedStatement);
+
+        } catch (SQLException e) {
+            failed(e);
+        }
+        return list;
+    }
+
+    @Override
+    public List<Flight> getFlightsDepartingInNextHours(int hours) {
+        List<Flight> list = new ArrayList<>();
+        String sql = "SELECT * FROM flights WHERE departure_time BETWEEN NOW() AND DATE_ADD(NOW(), INTERVAL ? HOUR)";
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            preparedStatement.setInt(1, hours);
+
+            list = readFlightsWithPassengers(connection, preparedStatement);
+
+        } catch (SQLException e) {
+            failed(e);
+        }
+
+        return list;
+    }
+
+
+    @Override
+    public List<Flight> getFlightsWithAvailableSeats(int minimumSeats) {
+        List<Flight> list = new ArrayList<>();
+        String sql = "SELECT * FROM flights WHERE available_seats >= ? ORDER BY available_seats DESC";
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            preparedStatement.setInt(1, minimumSeats);
+
+            list = readFlightsWithPassengers(connection, preparedStatement);
+
+        } catch (SQLException e) {
+            failed(e);
+        }
+
+        return list;
+    }
+
+    @Override
+    public List<Flight> getFlightsWithMostAvailableSeats(int count) {
+        List<Flight> list = new ArrayList<>();
+        String sql = "SELECT * FROM flights ORDER BY available_seats DESC LIMIT ?";
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            preparedStatement.setInt(1, count);
+
+            list = readFlightsWithPassengers(connection, preparedStatement);
+
+        } catch (SQLException e) {
+            failed(e);
+        }
+
+        return list;
+    }
+
+    @Override
+    public List<Passenger> getAllPassengers() {
+        List<Passenger> passengers = new ArrayList<>();
+        String sql = "SELECT * FROM passengers";
+        try (PooledConnection connection = pool.borrow();
+             ResultSet resultSet = connection.prepareStatement(sql).executeQuery()) {
+            while (resultSet.next()) {
+                passengers.add(readPassenger(resultSet));
+            }
+        } catch (SQLException e) {
+            failed(e);
+        }
+        return passengers;
+    }
+
+    /**
+     * Looks flight numbers up with IN queries of at most {@value #LOOKUP_BATCH_SIZE} numbers
+     */
+    @Override
+    public Set<String> getExistingFlightNumbers(Collection<String> flightNumbers) {
+        Set<String> existing = new HashSet<>();
+        List<String> numbers = new ArrayList<>(flightNumbers);
+        try (PooledConnection connection = pool.borrow()) {
+            for (int from = 0; from < numbers.size(); from += LOOKUP_BATCH_SIZE) {
+                List<String> batch = numbers.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, numbers.size()));
+                String placeholders = String.join(", ", Collections.nCopies(batch.size(), "?"));
+                try (PreparedStatement statement = connection.prepareUncachedStatement("SELECT flight_number FROM flights WHERE flight_number IN (" + placeholders + ")")) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        statement.setString(i + 1, batch.get(i));
+                    }
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            existing.add(resultSet.getString(1).toUpperCase());
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return existing;
+    }
+
+    /**
+     * Looks names up with row constructor IN queries of at most {@value #LOOKUP_BATCH_SIZE} names, using name and surname index
+     */
+    @Override
+    public List<Passenger> getExistingPassengers(Collection<Passenger> candidates) {
+        List<Passenger> existing = new ArrayList<>();
+        List<Passenger> names = new ArrayList<>(candidates);
+        try (PooledConnection connection = pool.borrow()) {
+            for (int from = 0; from < names.size(); from += LOOKUP_BATCH_SIZE) {
+                List<Passenger> batch = names.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, names.size()));
+                String placeholders = String.join(", ", Collections.nCopies(batch.size(), "(?, ?)"));
+                try (PreparedStatement statement = connection.prepareUncachedStatement("SELECT * FROM passengers WHERE (name, surname) IN (" + placeholders + ")")) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        statement.setString(2 * i + 1, batch.get(i).getName());
+                        statement.setString(2 * i + 2, batch.get(i).getSurname());
+                    }
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            existing.add(readPassenger(resultSet));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return existing;
+    }
+
+    /**
+     * Lists flights matching filter page by page, ordered by departure time.
+     * <p> Uses keyset pagination: next page starts right after last flight of previous page,
+     * so every page is a single index range read regardless of how far it is from the first one.
+     * @param filter Flight criteria, <code>null</code> lists all flights
+     * @param after Last flight of previous page, <code>null</code> for the first page
+     * @param pageSize Maximum number of returned flights
+     * @return Up to <code>pageSize</code> flights, fewer only on the last page
+     */
+    @Override
+    public List<Flight> getFlightsPage(FlightFilter filter, Flight after, int pageSize) {
+        if (filter == null) filter = new FlightFilter();
+        List<String> conditions = new ArrayList<>();
+        List<Object> parameters = new ArrayList<>();
+
+        if (filter.getOriginAirport() != null) {
+            if (filter.isIncludeOppositeDirection()) {
+                conditions.add("((origin_airport = ? AND destination_airport = ?) OR (origin_airport = ? AND destination_airport = ?))");
+                parameters.addAll(List.of(filter.getOriginAirport(), filter.getDestinationAirport(), filter.getDestinationAirport(), filter.getOriginAirport()));
+            } else {
+                conditions.add("origin_airport = ? AND destination_airport = ?");
+                parameters.addAll(List.of(filter.getOriginAirport(), filter.getDestinationAirport()));
+            }
+        }
+        if (filter.getDepartureFrom() != null) {
+            conditions.add("departure_time >= ?");
+            parameters.add(filter.getDepartureFrom());
+        }
+        if (filter.getDepartureTo() != null) {
+            conditions.add("departure_time <= ?");
+            parameters.add(filter.getDepartureTo());
+        }
+        if (filter.getMinimumSeats() > 0) {
+            conditions.add("available_seats >= ?");
+            parameters.add(filter.getMinimumSeats());
+        }
+        if (after != null) {
+            // Leading departure_time >= ? keeps it an index range, the rest skips flights departing at the same time with lower id
+            conditions.add("departure_time >= ? AND (departure_time > ? OR id > ?)");
+            parameters.addAll(List.of(after.getDepartureTime(), after.getDepartureTime(), after.getDbID()));
+        }
+
+        String sql = "SELECT * FROM flights"
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + " ORDER BY departure_time, id LIMIT ?";
+        parameters.add(pageSize);
+
+        List<Flight> list = new ArrayList<>();
+        try (PooledConnection connection = pool.borrow()) {
+            // Only a few filter combinations exist, so their statements are cached like fixed ones
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            for (int i = 0; i < parameters.size(); i++) {
+                preparedStatement.setObject(i + 1, parameters.get(i));
+            }
+
+            list = readFlightsWithPassengers(connection, preparedStatement);
+
+        } catch (SQLException e) {
+            failed(e);
+        }
+        return list;
+    }
+
+    /**
+     * Lists passengers page by page, ordered by database id.
+     * <p> Uses keyset pagination, so every page is a single primary key range read.
+     * @param after Last passenger of previous page, <code>null</code> for the first page
+     * @param pageSize Maximum number of returned passengers
+     * @return Up to <code>pageSize</code> passengers, fewer only on the last page
+     */
+    @Override
+    public List<Passenger> getPassengersPage(Passenger after, int pageSize) {
+        List<Passenger> list = new ArrayList<>();
+        String sql = "SELECT * FROM passengers WHERE id > ? ORDER BY id LIMIT ?";
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement preparedStatement = connection.prepareStatement(sql);
+            preparedStatement.setInt(1, after == null ? 0 : after.getDbID());
+            preparedStatement.setInt(2, pageSize);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    list.add(readPassenger(resultSet));
+                }
+            }
+
+        } catch (SQLException e) {
+            failed(e);
+        }
+        return list;
+    }
+
+    /**
+     * Streams all flights stored in database using server side cursor, so only <code>fetchSize</code> rows are held in memory at once.
+     * Flights are created without passengers, which are loaded the first time they are needed.
+     * <p> Stream holds database connection until closed, so it should be used in try-with-resources block.
+     * @param fetchSize Number of rows fetched from database in one round trip
+     * @return Stream of flights in order of database ids
+     */
+    @Override
+    public Stream<Flight> streamAllFlights(int fetchSize) {
+        return stream("SELECT * FROM flights ORDER BY id", fetchSize, resultSet -> readFlight(resultSet, null));
+    }
+
+    /**
+     * Streams all passengers stored in database using server side cursor, so only <code>fetchSize</code> rows are held in memory at once.
+     * Streamed passengers are not registered as shared session objects, so memory use does not grow with table size.
+     * <p> Stream holds database connection until closed, so it should be used in try-with-resources block.
+     * @param fetchSize Number of rows fetched from database in one round trip
+     * @return Stream of passengers in order of database ids
+     */
+    @Override
+    public Stream<Passenger> streamAllPassengers(int fetchSize) {
+        return stream("SELECT * FROM passengers ORDER BY id", fetchSize, resultSet -> new Passenger(
+                resultSet.getInt("id"),
+                resultSet.getString("name"),
+                resultSet.getString("surname"),
+                resultSet.getString("phone_number")
+        ));
+    }
+
+    private interface RowMapper<T> {
+        T map(ResultSet resultSet) throws SQLException;
+    }
+
+    /**
+     * Executes query with given fetch size and maps rows lazily as stream is consumed.
+     * Connection is returned to pool when stream is closed.
+     */
+    private <T> Stream<T> stream(String sql, int fetchSize, RowMapper<T> mapper) {
+        PooledConnection connection = null;
+        PreparedStatement statement = null;
+        try {
+            connection = pool.borrow();
+            statement = connection.prepareUncachedStatement(sql);
+            statement.setFetchSize(fetchSize);
+            ResultSet resultSet = statement.executeQuery();
+
+            Spliterator<T> rows = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super T> action) {
+                    try {
+                        if (!resultSet.next()) return false;
+                        action.accept(mapper.map(resultSet));
+                        return true;
+                    } catch (SQLException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            PooledConnection streamConnection = connection;
+            PreparedStatement streamStatement = statement;
+            return StreamSupport.stream(rows, false).onClose(() -> closeStream(streamStatement, streamConnection));
+        } catch (SQLException e) {
+            closeStream(statement, connection);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void closeStream(PreparedStatement statement, PooledConnection connection) {
+        try {
+            if (statement != null) statement.close();
+        } catch (SQLException e) {
+            failed(e);
+        } finally {
+            if (connection != null) connection.close();
+        }
+    }
+
+    @Override
+    public int addPassengerToFlight(Passenger passenger, Flight flight, int seatNo) {
+        //System.out.println(passenger.getDbID() + " " + flight.getDbID());
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement preparedStatement = connection.prepareStatement(INSERT_BOOKING_SQL, Statement.RETURN_GENERATED_KEYS);
+            bindBooking(preparedStatement, passenger, flight, seatNo);
+
+            return logged(connection, () -> {
+                preparedStatement.executeUpdate();
+                int id = readGeneratedKeys(preparedStatement, 1)[0];
+                logChange(connection, Change.ofFlight(Change.Type.BOOKINGS_CHANGED, flight.getDbID(), flight.getFlightNumber()));
+                return id;
+            });
+
+        } catch (SQLException e) {
+            failed(e);
+            return -1;
+        }
+    }
+
+    /**
+     * Books seat in a single transaction: takes one available seat from flight and inserts booking.
+     * <p> Seat availability is checked by database (<code>available_seats > 0</code> and unique seat per flight),
+     * so concurrent bookings from any number of application instances can not overbook flight or double-book seat.
+     * Only the booked flight row is locked, transaction is retried if database aborts it due to deadlock.
+     * @param passenger Passenger object assigned to flight
+     * @param flight Flight object passenger is assigned to
+     * @param seatNo Booked seat number
+     * @return Booking result with booking id if seat was booked
+     * @throws IllegalArgumentException if passenger is not stored in database
+     */
+    @Override
+    public BookingResult bookSeat(Passenger passenger, Flight flight, int seatNo) {
+        for (int attempt = 1; ; attempt++) {
+            try (PooledConnection connection = pool.borrow()) {
+                connection.setAutoCommit(false);
+                try {
+                    // Flight row is locked first, so concurrent bookings of the same flight queue up instead of deadlocking on foreign key locks
+                    PreparedStatement takeSeat = connection.prepareStatement("UPDATE flights SET available_seats = available_seats - 1 WHERE id = ? AND available_seats > 0");
+                    takeSeat.setInt(1, flight.getDbID());
+                    if (takeSeat.executeUpdate() == 0) {
+                        // Nothing was updated because flight is full or because it does not exist
+                        PreparedStatement findFlight = connection.prepareStatement("SELECT 1 FROM flights WHERE id = ?");
+                        findFlight.setInt(1, flight.getDbID());
+                        boolean exists;
+                        try (ResultSet resultSet = findFlight.executeQuery()) {
+                            exists = resultSet.next();
+                        }
+                        connection.rollback();
+                        return BookingResult.failed(exists ? BookingResult.Status.FLIGHT_FULL : BookingResult.Status.FLIGHT_NOT_FOUND);
+                    }
+
+                    PreparedStatement insertBooking = connection.prepareStatement(INSERT_BOOKING_SQL, Statement.RETURN_GENERATED_KEYS);
+                    bindBooking(insertBooking, passenger, flight, seatNo);
+                    insertBooking.executeUpdate();
+                    int bookingId = readGeneratedKeys(insertBooking, 1)[0];
+                    logChange(connection, Change.ofFlight(Change.Type.BOOKINGS_CHANGED, flight.getDbID(), flight.getFlightNumber()));
+
+                    connection.commit();
+                    return new BookingResult(BookingResult.Status.BOOKED, bookingId);
+                } catch (SQLIntegrityConstraintViolationException e) {
+                    connection.rollback();
+                    // Flight row was just updated, so missing referenced row is the passenger
+                    if (e.getErrorCode() == MISSING_REFERENCED_ROW) throw new IllegalArgumentException("Passenger " + passenger.getFullName() + " is not stored", e);
+                    if (e.getErrorCode() == DUPLICATE_ENTRY) {
+                        String index = duplicateEntryIndex(e);
+                        if (FLIGHT_PASSENGER_INDEX.equals(index)) return BookingResult.failed(BookingResult.Status.ALREADY_BOOKED);
+                        if (FLIGHT_SEAT_INDEX.equals(index)) return BookingResult.failed(BookingResult.Status.SEAT_TAKEN);
+                    }
+                    throw e;
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLTransactionRollbackException e) {
+                if (attempt == BOOKING_ATTEMPTS) throw new RuntimeException(e);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Removes booking and gives its seat back to flight in a single transaction
+     * @param passenger Passenger object removed from flight
+     * @param flight Flight object passenger is removed from
+     * @return <code>true</code> if booking was removed <p> <code>false</code> if passenger had no booking on flight
+     */
+    @Override
+    public boolean cancelBooking(Passenger passenger, Flight flight) {
+        try (PooledConnection connection = pool.borrow()) {
+            connection.setAutoCommit(false);
+            try {
+                PreparedStatement deleteBooking = connection.prepareStatement("DELETE FROM bookings WHERE passenger_id = ? AND flight_id = ?");
+                deleteBooking.setInt(1, passenger.getDbID());
+                deleteBooking.setInt(2, flight.getDbID());
+                if (deleteBooking.executeUpdate() == 0) {
+                    connection.rollback();
+                    return false;
+                }
+
+                PreparedStatement freeSeat = connection.prepareStatement("UPDATE flights SET available_seats = available_seats + 1 WHERE id = ?");
+                freeSeat.setInt(1, flight.getDbID());
+                freeSeat.executeUpdate();
+                logChange(connection, Change.ofFlight(Change.Type.BOOKINGS_CHANGED, flight.getDbID(), flight.getFlightNumber()));
+
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            failed(e);
+            return false;
+        }
+    }
+
+    @Override
+    public void removePassengerFromFlight(Passenger passenger, Flight flight) {
+        String sqlQuery = "DELETE FROM bookings WHERE passenger_id = ? AND flight_id = ?";
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement preparedStatement = connection.prepareStatement(sqlQuery);
+            preparedStatement.setInt(1, passenger.getDbID());
+            preparedStatement.setInt(2, flight.getDbID());
+
+            logged(connection, () -> {
+                int rows = preparedStatement.executeUpdate();
+                if (rows > 0) logChange(connection, Change.ofFlight(Change.Type.BOOKINGS_CHANGED, flight.getDbID(), flight.getFlightNumber()));
+                return rows;
+            });
+
+        } catch (SQLException e) {
+            failed(e);
+        }
+    }
+
+    /**
+     * Inserts many flights at once using batched multi-row inserts, in a single transaction.
+     * Flights should be created with {@link Flight#unsaved}, their database ids are set after insert.
+     * @param flights Flights not stored in database yet
+     * @return Added flights database ids, in order of given list
+     */
+    @Override
+    public int[] addFlights(List<Flight> flights) {
+        int[] ids = insertInBatches(INSERT_FLIGHT_SQL, flights, JdbcStorage::bindFlight, generatedIds -> {
+            List<Change> changes = new ArrayList<>(generatedIds.length);
+            for (int i = 0; i < generatedIds.length; i++) {
+                changes.add(Change.ofFlight(Change.Type.FLIGHT_SAVED, generatedIds[i], flights.get(i).getFlightNumber()));
+            }
+            return changes;
+        });
+        for (int i = 0; i < ids.length; i++) {
+            flights.get(i).setDbID(ids[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * Inserts many passengers at once using batched multi-row inserts, in a single transaction.
+     * Passengers should be created with {@link Passenger#unsaved}, their database ids are set after insert.
+     * @param newPassengers Passengers not stored in database yet
+     * @return Added passengers database ids, in order of given list
+     */
+    @Override
+    public int[] addPassengers(List<Passenger> newPassengers) {
+        int[] ids = insertInBatches(INSERT_PASSENGER_SQL, newPassengers, JdbcStorage::bindPassenger, generatedIds -> {
+            List<Change> changes = new ArrayList<>(generatedIds.length);
+            for (int id : generatedIds) {
+                changes.add(Change.ofPassenger(Change.Type.PASSENGER_SAVED, id));
+            }
+            return changes;
+        });
+        for (int i = 0; i < ids.length; i++) {
+            newPassengers.get(i).setDbID(ids[i]);
+            passengers.register(newPassengers.get(i));
+        }
+        return ids;
+    }
+
+    /**
+     * Inserts many bookings of one flight at once using batched multi-row inserts, in a single transaction.
+     * Like {@link #addPassengerToFlight}, it does not change number of available seats.
+     * @param flight Flight object passengers are assigned to
+     * @param passengersAndSeats Map: key -> Passenger object <p> value -> booked seat number
+     * @return Booking ids from database, in iteration order of given map
+     */
+    @Override
+    public int[] addBookings(Flight flight, Map<Passenger, Integer> passengersAndSeats) {
+        return insertInBatches(INSERT_BOOKING_SQL, new ArrayList<>(passengersAndSeats.entrySet()),
+                (statement, entry) -> bindBooking(statement, entry.getKey(), flight, entry.getValue()),
+                generatedIds -> List.of(Change.ofFlight(Change.Type.BOOKINGS_CHANGED, flight.getDbID(), flight.getFlightNumber())));
+    }
+
+    private interface Binder<T> {
+        void bind(PreparedStatement statement, T item) throws SQLException;
+    }
+
+    /**
+     * Executes insert for every item in JDBC batches of {@value #INSERT_BATCH_SIZE} rows, rolling back everything if any batch fails
+     * @param changes Creates change log entries of inserted rows from their generated ids
+     * @return Generated ids, in order of given items
+     */
+    private <T> int[] insertInBatches(String sql, List<T> items, Binder<T> binder, Function<int[], List<Change>> changes) {
+        int[] ids = new int[items.size()];
+        try (PooledConnection connection = pool.borrow()) {
+            connection.setAutoCommit(false);
+            try {
+                PreparedStatement preparedStatement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+                for (int from = 0; from < items.size(); from += INSERT_BATCH_SIZE) {
+                    int to = Math.min(from + INSERT_BATCH_SIZE, items.size());
+                    for (int i = from; i < to; i++) {
+                        binder.bind(preparedStatement, items.get(i));
+                        preparedStatement.addBatch();
+                    }
+                    preparedStatement.executeBatch();
+                    System.arraycopy(readGeneratedKeys(preparedStatement, to - from), 0, ids, from, to - from);
+                }
+                if (changeLog) logChanges(connection, changes.apply(ids));
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return ids;
+    }
+
+    /**
+     * Reads name of unique index violated by duplicate entry error, which MySQL reports only in message:
+     * <code>Duplicate entry '7-12' for key 'bookings.idx_flight_seat'</code>, without table name before version 8.0.19
+     * @return Index name <p> <code>null</code> if message has unexpected format
+     */
+    static String duplicateEntryIndex(SQLException e) {
+        String message = e.getMessage();
+        String prefix = "for key '";
+        int start = message == null ? -1 : message.lastIndexOf(prefix);
+        if (start < 0) return null;
+        int end = message.indexOf('\'', start + prefix.length());
+        if (end < 0) return null;
+        String key = message.substring(start + prefix.length(), end);
+        return key.substring(key.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Logs exception which is handled by returning empty result,
+     * so the operation is still counted as failed by {@link QueryMetrics}
+     */
+    private static void failed(SQLException e) {
+        e.printStackTrace();
+        QueryMetrics.errorHandled();
+    }
+
+    private static int[] readGeneratedKeys(PreparedStatement statement, int count) throws SQLException {
+        int[] ids = new int[count];
+        int i = 0;
+        try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+            while (generatedKeys.next() && i < count) {
+                ids[i++] = generatedKeys.getInt(1);
+            }
+        }
+        if (i != count) throw new SQLException("Expected " + count + " generated keys, got " + i);
+        return ids;
+    }
+
+    private static void bindFlight(PreparedStatement preparedStatement, Flight flight) throws SQLException {
+        preparedStatement.setString(1, flight.getFlightNumber());
+        preparedStatement.setString(2, flight.getOriginAirport());
+        preparedStatement.setString(3, flight.getDestinationAirport());
+        preparedStatement.setTimestamp(4, flight.getDepartureTime());
+        preparedStatement.setTimestamp(5, flight.getEstimatedArrivalTime());
+        preparedStatement.setInt(6, flight.getAvailableSeats());
+        preparedStatement.setInt(7, flight.getMaxNumberOfSeats());
+    }
+
+    private static void bindPassenger(PreparedStatement preparedStatement, Passenger passenger) throws SQLException {
+        preparedStatement.setString(1, passenger.getName());
+        preparedStatement.setString(2, passenger.getSurname());
+        preparedStatement.setString(3, passenger.getPhoneNumber());
+    }
+
+    private static void bindBooking(PreparedStatement preparedStatement, Passenger passenger, Flight flight, int seatNo) throws SQLException {
+        preparedStatement.setInt(1, flight.getDbID());
+        preparedStatement.setInt(2, passenger.getDbID());
+        preparedStatement.setInt(3, seatNo);
+    }
+
+    private interface Mutation<T> {
+        T run() throws SQLException;
+    }
+
+    /**
+     * Runs mutation in a transaction if change log is enabled, so changes it logs are committed or rolled back together with it
+     */
+    private <T> T logged(PooledConnection connection, Mutation<T> mutation) throws SQLException {
+        if (!changeLog) return mutation.run();
+        connection.setAutoCommit(false);
+        try {
+            T result = mutation.run();
+            connection.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private void logChange(PooledConnection connection, Change change) throws SQLException {
+        logChanges(connection, List.of(change));
+    }
+
+    /**
+     * Records changes in change log within current transaction of connection, does nothing if change log is disabled
+     */
+    private void logChanges(PooledConnection connection, List<Change> changes) throws SQLException {
+        if (!changeLog || changes.isEmpty()) return;
+        PreparedStatement preparedStatement = connection.prepareStatement(INSERT_CHANGE_SQL);
+        for (int from = 0; from < changes.size(); from += INSERT_BATCH_SIZE) {
+            for (Change change : changes.subList(from, Math.min(from + INSERT_BATCH_SIZE, changes.size()))) {
+                preparedStatement.setString(1, change.type().name());
+                preparedStatement.setObject(2, change.flightId() > 0 ? change.flightId() : null, Types.INTEGER);
+                preparedStatement.setString(3, change.flightNumber());
+                preparedStatement.setObject(4, change.passengerId() > 0 ? change.passengerId() : null, Types.INTEGER);
+                preparedStatement.setString(5, nodeId);
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        }
+    }
+
+    public boolean isChangeLogEnabled() {
+        return changeLog;
+    }
+
+    /**
+     *
+     * @return Id of this storage instance, recorded with its changes in change log
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     *
+     * @return Sequence number of the last change in change log, 0 if it is empty
+     */
+    public long getLastChangeSequence() {
+        try (PooledConnection connection = pool.borrow();
+             ResultSet resultSet = connection.prepareStatement("SELECT COALESCE(MAX(seq), 0) FROM change_log").executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Sequence number to catch up from, so that changes are not missed by state read from database from now on.
+     * <p> Numbers are assigned before transactions commit, so changes numbered below the last one may still be uncommitted.
+     * Returned number is the last change written at least {@value ChangeLogPoller#GAP_TIMEOUT_MILLIS} ms ago,
+     * older changes still not committed are treated as rolled back, like gaps in sequence numbers are by {@link ChangeLogPoller}.
+     * Changes after it which are already reflected in state read from database are applied again, without changing it.
+     * @return Sequence number of the last change written before gap timeout, 0 if there is none
+     */
+    public long getSettledChangeSequence() {
+        String sql = "SELECT seq FROM change_log WHERE created_at < NOW() - INTERVAL ? SECOND ORDER BY created_at DESC, seq DESC LIMIT 1";
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setLong(1, TimeUnit.MILLISECONDS.toSeconds(ChangeLogPoller.GAP_TIMEOUT_MILLIS) + 1);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     *
+     * @return Change log of this storage, read by {@link ChangeLogPoller}
+     */
+    ChangeLog getChangeLog() {
+        return new ChangeLog() {
+            @Override
+            public List<Change> readChanges(long afterSequence, int limit) {
+                return JdbcStorage.this.readChanges(afterSequence, limit);
+            }
+
+            @Override
+            public String getNodeId() {
+                return nodeId;
+            }
+
+            @Override
+            public List<Flight> getFlightsByIds(Collection<Integer> flightIds) {
+                return JdbcStorage.this.getFlightsByIds(flightIds);
+            }
+
+            @Override
+            public void refreshPassengers(Collection<Integer> savedIds, Collection<Integer> deletedIds) {
+                JdbcStorage.this.refreshPassengers(savedIds, deletedIds);
+            }
+        };
+    }
+
+    /**
+     * Reads changes made by all application instances, including this one
+     * @param afterSequence Sequence number of the last already read change
+     * @param limit Maximum number of returned changes
+     * @return Changes in order of sequence numbers
+     */
+    List<Change> readChanges(long afterSequence, int limit) {
+        List<Change> changes = new ArrayList<>();
+        String sql = "SELECT * FROM change_log WHERE seq > ? ORDER BY seq LIMIT ?";
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setLong(1, afterSequence);
+            statement.setInt(2, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    changes.add(new Change(
+                            resultSet.getLong("seq"),
+                            Change.Type.valueOf(resultSet.getString("change_type")),
+                            resultSet.getInt("flight_id"),
+                            resultSet.getString("flight_number"),
+                            resultSet.getInt("passenger_id"),
+                            resultSet.getString("node_id")
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return changes;
+    }
+
+    /**
+     * Deletes old entries of change log, which were already read by all application instances
+     * @param before Entries created earlier are deleted
+     * @return Number of deleted entries
+     */
+    public int pruneChangeLog(Timestamp before) {
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement statement = connection.prepareStatement("DELETE FROM change_log WHERE created_at < ?");
+            statement.setTimestamp(1, before);
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Looks flights up by ids with IN queries of at most {@value #LOOKUP_BATCH_SIZE} ids.
+     * Flights are created without passengers, which are loaded the first time they are needed.
+     * @return Found flights, ids of deleted flights are skipped
+     */
+    @Override
+    public List<Flight> getFlightsByIds(Collection<Integer> flightIds) {
+        List<Flight> flights = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>(flightIds);
+        try (PooledConnection connection = pool.borrow()) {
+            for (int from = 0; from < ids.size(); from += LOOKUP_BATCH_SIZE) {
+                List<Integer> batch = ids.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, ids.size()));
+                String placeholders = String.join(", ", Collections.nCopies(batch.size(), "?"));
+                try (PreparedStatement statement = connection.prepareUncachedStatement("SELECT * FROM flights WHERE id IN (" + placeholders + ")")) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        statement.setInt(i + 1, batch.get(i));
+                    }
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            flights.add(readFlight(resultSet, null));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return flights;
+    }
+
+    /**
+     * Reloads phone numbers of shared passenger objects changed by other application instances, forgets deleted passengers
+     * @param savedIds Ids of added or updated passengers, only ones represented by shared objects are read
+     * @param deletedIds Ids of deleted passengers
+     */
+    void refreshPassengers(Collection<Integer> savedIds, Collection<Integer> deletedIds) {
+        for (int id : deletedIds) {
+            passengers.remove(id);
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (int id : savedIds) {
+            if (passengers.get(id) != null) ids.add(id);
+        }
+        if (ids.isEmpty()) return;
+        try (PooledConnection connection = pool.borrow()) {
+            for (int from = 0; from < ids.size(); from += LOOKUP_BATCH_SIZE) {
+                List<Integer> batch = ids.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, ids.size()));
+                String placeholders = String.join(", ", Collections.nCopies(batch.size(), "?"));
+                try (PreparedStatement statement = connection.prepareUncachedStatement("SELECT * FROM passengers WHERE id IN (" + placeholders + ")")) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        statement.setInt(i + 1, batch.get(i));
+                    }
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            readPassenger(resultSet);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Closes connection pool, ends session of shared passenger objects
+     */
+    @Override
+    public void close() {
+        pool.close();
+        passengers.clear();
+    }
+}
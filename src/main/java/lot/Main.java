@@ -1,4 +1,8 @@
+package lot;
+
 import javax.xml.crypto.Data;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -8,6 +12,18 @@ public class Main {
     public static void main(String[] args) {
         Database db = new Database();
 
+        // Flights file and optionally passengers file given as arguments are imported before the demo
+        if (args.length > 0) {
+            System.out.println("===== IMPORTING SCHEDULES =====");
+            ScheduleImporter importer = new ScheduleImporter();
+            try {
+                System.out.println(importer.importFlights(Path.of(args[0])));
+                if (args.length > 1) System.out.println(importer.importPassengers(Path.of(args[1])));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
         System.out.println("===== CREATING NEW FLIGHTS =====");
 
         // Creating new flights and inserting into database
@@ -0,0 +1,170 @@
+package lot;
+
+import java.util.regex.Pattern;
+
+public final class Passenger {
+    private static final Pattern PHONE_NUMBER = Pattern.compile("^[+]?[(]?[0-9]{3}[)]?[-\\s.]?[0-9]{3}[-\\s.]?[0-9]{4,6}$");
+    private final String name;
+    private final String surname;
+    private String phoneNumber;
+    private int dbID;
+    private int uncommittedChanges;   // units of work holding change of this passenger, guarded by this
+
+    /**
+     *
+     * @param name Passenger name
+     * @param surname Passenger surname
+     * @param phoneNumber Passenger phone number
+     * @throws IllegalArgumentException
+     */
+    public Passenger(String name, String surname, String phoneNumber) throws IllegalArgumentException {
+        this(name, surname, phoneNumber, -1);
+        if (Database.doesPassengerExists(name, surname)) throw new IllegalArgumentException("Such passenger already exists in database");
+
+        this.dbID = Database.addPassengerToDatabase(this);
+
+        //System.out.println(this.dbID);
+    }
+
+    /**
+     * Validates given data and creates passenger object without storing it in database
+     */
+    private Passenger(String name, String surname, String phoneNumber, int id) throws IllegalArgumentException {
+        if (!isPhoneNumberCorrect(phoneNumber)) throw new IllegalArgumentException("Incorrect phone number");
+        this.name = name;
+        this.surname = surname;
+        this.phoneNumber = phoneNumber;
+        this.dbID = id;
+    }
+
+    /**
+     * Creates passenger which is not stored in database yet, to be inserted in batch with {@link Database#addPassengers(java.util.List)}.
+     * Unlike public constructor it does not check if passenger already exists in database.
+     * @param name Passenger name
+     * @param surname Passenger surname
+     * @param phoneNumber Passenger phone number
+     * @return Passenger object with database id -1
+     * @throws IllegalArgumentException
+     */
+    public static Passenger unsaved(String name, String surname, String phoneNumber) throws IllegalArgumentException {
+        return new Passenger(name, surname, phoneNumber, -1);
+    }
+
+    /**
+     * Only used to create passenger object pulled from database
+     */
+    public Passenger(int id, String name, String surname, String phoneNumber) {
+        this.dbID = id;
+        this.name = name;
+        this.surname = surname;
+        this.phoneNumber = phoneNumber;
+    }
+
+    /**
+     *
+     * @param phoneNumber
+     * @return <code>true</code> if phone number is in correct format <p> <code>false</code> otherwise
+     */
+    static boolean isPhoneNumberCorrect(String phoneNumber) {
+        return PHONE_NUMBER.matcher(phoneNumber).matches();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSurname() {
+        return surname;
+    }
+
+    public String getFullName() { return name + " " + surname; }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+
+    /**
+     * Updates phone number with value read from database, without writing it back.
+     * Skipped while passenger has change recorded by unit of work, so the change is not lost before commit.
+     */
+    synchronized void refreshPhoneNumber(String phoneNumber) {
+        if (this.uncommittedChanges == 0) this.phoneNumber = phoneNumber;
+    }
+
+    /**
+     * Called by unit of work when it records change of this passenger
+     */
+    synchronized void changeRecorded() {
+        this.uncommittedChanges++;
+    }
+
+    /**
+     * Called by unit of work when recorded change is committed or discarded
+     */
+    synchronized void changeSettled() {
+        this.uncommittedChanges--;
+    }
+
+    /**
+     * Restores phone number from before uncommitted change, without writing it to database
+     */
+    synchronized void restorePhoneNumber(String phoneNumber) {
+        this.phoneNumber = phoneNumber;
+    }
+
+    public void setPhoneNumber(String phoneNumber) throws IllegalArgumentException {
+        if (isPhoneNumberCorrect(phoneNumber)) {
+            String previous = this.phoneNumber;
+            this.phoneNumber = phoneNumber;
+            UnitOfWork unitOfWork = UnitOfWork.current();
+            if (unitOfWork != null) {
+                unitOfWork.passengerChanged(this, previous);
+            } else {
+                Database.updatePassenger(this);
+            }
+        } else throw new IllegalArgumentException("Incorrect phone number");
+    }
+
+    /**
+     *
+     * @return Database id of passenger
+     */
+    public int getDbID() {
+        return dbID;
+    }
+
+    /**
+     * Used after passenger created with {@link #unsaved} is inserted into database
+     */
+    void setDbID(int dbID) {
+        this.dbID = dbID;
+    }
+
+    /**
+     * Deletes passenger from database
+     */
+    public void delete() {
+        Database.deletePassengerFromDatabase(this.dbID);
+    }
+
+    /**
+     * Passengers are equal if they represent the same database row.
+     * Passengers not stored in database are equal only to themselves.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Passenger other)) return false;
+        return this.dbID > 0 && this.dbID == other.dbID;
+    }
+
+    /**
+     * Hash code changes when passenger created with {@link #unsaved} is stored in database,
+     * so unsaved passengers should not be kept in hash based collections across insert.
+     */
+    @Override
+    public int hashCode() {
+        return this.dbID > 0 ? Integer.hashCode(this.dbID) : System.identityHashCode(this);
+    }
+}
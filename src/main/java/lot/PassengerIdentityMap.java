@@ -0,0 +1,81 @@
+package lot;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Makes sure each passenger row is represented by a single shared Passenger object within a database session.
+ * <p> Passengers are held by weak references, so passengers no longer used by application can be garbage collected.
+ * <p> Thread-safe.
+ */
+class PassengerIdentityMap {
+    private final ConcurrentHashMap<Integer, PassengerReference> passengers = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Passenger> collected = new ReferenceQueue<>();
+
+    private static class PassengerReference extends WeakReference<Passenger> {
+        private final int id;
+
+        private PassengerReference(Passenger passenger, ReferenceQueue<Passenger> queue) {
+            super(passenger, queue);
+            this.id = passenger.getDbID();
+        }
+    }
+
+    /**
+     * Returns passenger object of given row, creating it only if row is not represented by any object yet.
+     * Phone number of already existing object is refreshed with the one read from database,
+     * unless its change is waiting for commit of a unit of work.
+     * @return Shared passenger object
+     */
+    Passenger resolve(int id, String name, String surname, String phoneNumber) {
+        expungeCollected();
+        Passenger passenger = get(id);
+        if (passenger == null) {
+            Passenger created = new Passenger(id, name, surname, phoneNumber);
+            PassengerReference reference = passengers.compute(id, (key, existing) ->
+                    existing != null && existing.get() != null ? existing : new PassengerReference(created, collected));
+            passenger = reference.get();
+            if (passenger == null) passenger = created;
+        }
+        passenger.refreshPhoneNumber(phoneNumber);
+        return passenger;
+    }
+
+    /**
+     * Registers passenger which was just inserted into database
+     */
+    void register(Passenger passenger) {
+        if (passenger.getDbID() <= 0) return;
+        expungeCollected();
+        passengers.put(passenger.getDbID(), new PassengerReference(passenger, collected));
+    }
+
+    Passenger get(int id) {
+        PassengerReference reference = passengers.get(id);
+        return reference == null ? null : reference.get();
+    }
+
+    void remove(int id) {
+        passengers.remove(id);
+    }
+
+    void clear() {
+        passengers.clear();
+    }
+
+    int size() {
+        expungeCollected();
+        return passengers.size();
+    }
+
+    /**
+     * Removes entries of garbage collected passengers
+     */
+    private void expungeCollected() {
+        PassengerReference reference;
+        while ((reference = (PassengerReference) collected.poll()) != null) {
+            passengers.remove(reference.id, reference);
+        }
+    }
+}
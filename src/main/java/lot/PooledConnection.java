@@ -0,0 +1,129 @@
+package lot;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Connection borrowed from {@link ConnectionPool}. Closing it returns underlying connection to the pool.
+ * <p> Keeps cache of prepared statements, so statements prepared repeatedly on the same connection are parsed only once.
+ * <p> Not thread-safe, should be used by one thread at a time.
+ */
+public class PooledConnection implements AutoCloseable {
+    private static final int STATEMENT_CACHE_SIZE = 64;
+
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private long lastUsed = System.currentTimeMillis();
+    private boolean borrowed = false;
+    // Access ordered, so the least recently used statement is evicted first
+    private final Map<String, PreparedStatement> statementCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+            if (size() <= STATEMENT_CACHE_SIZE) return false;
+            closeQuietly(eldest.getValue());
+            return true;
+        }
+    };
+
+    PooledConnection(ConnectionPool pool, Connection connection) {
+        this.pool = pool;
+        this.connection = connection;
+    }
+
+    /**
+     * Returns statement prepared earlier on this connection or prepares a new one.
+     * <p> Returned statement is owned by the cache and must not be closed by caller.
+     * @param sql SQL statement with fixed text, statements built dynamically should use {@link #prepareUncachedStatement(String)}
+     * @return Prepared statement with cleared parameters
+     */
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return prepareStatement(sql, Statement.NO_GENERATED_KEYS);
+    }
+
+    /**
+     * Same as {@link #prepareStatement(String)}, but allows retrieving generated keys
+     * @param sql SQL statement with fixed text
+     * @param autoGeneratedKeys {@link Statement#RETURN_GENERATED_KEYS} or {@link Statement#NO_GENERATED_KEYS}
+     * @return Prepared statement with cleared parameters
+     */
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "KEYS " + sql : sql;
+        PreparedStatement statement = statementCache.get(key);
+        if (statement != null && !statement.isClosed()) {
+            pool.recordStatementCacheHit();
+            statement.clearParameters();
+            return statement;
+        }
+        pool.recordStatementCacheMiss();
+        statement = connection.prepareStatement(sql, autoGeneratedKeys);
+        statementCache.put(key, statement);
+        return statement;
+    }
+
+    /**
+     * Prepares statement which is not cached and has to be closed by caller
+     * @param sql SQL statement
+     * @return New prepared statement
+     */
+    public PreparedStatement prepareUncachedStatement(String sql) throws SQLException {
+        return connection.prepareStatement(sql);
+    }
+
+    public Statement createStatement() throws SQLException {
+        return connection.createStatement();
+    }
+
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        connection.setAutoCommit(autoCommit);
+    }
+
+    public void commit() throws SQLException {
+        connection.commit();
+    }
+
+    public void rollback() throws SQLException {
+        connection.rollback();
+    }
+
+    /**
+     *
+     * @return Underlying JDBC connection, must not be closed directly
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    void markBorrowed() {
+        borrowed = true;
+    }
+
+    void markUsed() {
+        lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns connection to the pool
+     */
+    @Override
+    public void close() {
+        if (!borrowed) return;
+        borrowed = false;
+        pool.release(this);
+    }
+}
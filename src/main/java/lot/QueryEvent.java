@@ -0,0 +1,29 @@
+package lot;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a single {@link Database} operation, so database stalls can be correlated with GC and thread activity.
+ * <p> Enabled by default, e.g. <code>java -XX:StartFlightRecording=filename=lot.jfr ...</code>,
+ * its threshold can be raised with <code>lot.Query#threshold=10ms</code>.
+ */
+@Name("lot.Query")
+@Label("Database Query")
+@Category({"LOT", "Database"})
+@Description("Database operation with number of returned rows")
+@StackTrace(false)
+class QueryEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Succeeded")
+    boolean succeeded;
+}
@@ -0,0 +1,223 @@
+package lot;
+
+import jdk.jfr.EventType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Call counts, error counts, returned rows and latency histograms of every {@link Database} operation.
+ * <p> Operations slower than slow query threshold are logged, every operation is also emitted as {@link QueryEvent} flight recorder event
+ * while the event is enabled.
+ * <p> Recording costs a few counter increments and one histogram increment, without locks. Flight recorder event is allocated only when enabled.
+ * <p> Operation fails when it throws exception or when storage handles exception itself and reports it with {@link #errorHandled()}.
+ * <p> Thread-safe.
+ */
+public class QueryMetrics {
+    public static final long DEFAULT_SLOW_QUERY_MILLIS = 1000;
+
+    /**
+     * Operations of {@link Database}
+     */
+    public enum Operation {
+        DOES_FLIGHT_EXISTS, GET_FLIGHT, GET_PASSENGERS_ON_FLIGHT, GET_PASSENGERS_ON_FLIGHTS, GET_ALL_PASSENGER_FLIGHTS, GET_ALL_PASSENGERS_FLIGHTS,
+        DOES_PASSENGER_EXISTS, GET_PASSENGER, DELETE_PASSENGER, ADD_FLIGHT, DELETE_FLIGHT, UPDATE_FLIGHT, UPDATE_CHANGED,
+        UPDATE_PASSENGER, ADD_PASSENGER, GET_ALL_FLIGHTS, GET_ALL_FLIGHTS_ON_ROUTE, GET_ALL_FLIGHTS_FROM_AIRPORT, GET_FLIGHTS_DEPARTING_IN_NEXT_HOURS,
+        GET_FLIGHTS_WITH_AVAILABLE_SEATS, GET_FLIGHTS_WITH_MOST_AVAILABLE_SEATS, GET_ALL_PASSENGERS, GET_EXISTING_FLIGHT_NUMBERS, GET_EXISTING_PASSENGERS, GET_FLIGHTS_PAGE, GET_PASSENGERS_PAGE, STREAM_ALL_FLIGHTS,
+        STREAM_ALL_PASSENGERS, ADD_PASSENGER_TO_FLIGHT, BOOK_SEAT, CANCEL_BOOKING, REMOVE_PASSENGER_FROM_FLIGHT,
+        ADD_FLIGHTS, ADD_PASSENGERS, ADD_BOOKINGS
+    }
+
+    /**
+     * Metrics of a single operation
+     */
+    public static class OperationStats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        /**
+         *
+         * @return Number of calls which ended with exception
+         */
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        /**
+         *
+         * @return Number of rows returned or written by all calls
+         */
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        private void reset() {
+            calls.reset();
+            errors.reset();
+            rows.reset();
+            latency.reset();
+        }
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final EventType QUERY_EVENT = EventType.getEventType(QueryEvent.class);
+    // Number of errors handled by storage on each thread, compared before and after measured operation
+    private static final ThreadLocal<int[]> handledErrors = ThreadLocal.withInitial(() -> new int[1]);
+    private final OperationStats[] stats = new OperationStats[OPERATIONS.length];
+    private volatile long slowQueryNanos;
+
+    public QueryMetrics() {
+        this(DEFAULT_SLOW_QUERY_MILLIS);
+    }
+
+    /**
+     *
+     * @param slowQueryMillis Operations taking at least this long are logged, 0 disables slow query log
+     * @throws IllegalArgumentException if threshold is negative
+     */
+    public QueryMetrics(long slowQueryMillis) throws IllegalArgumentException {
+        this.slowQueryNanos = toSlowQueryNanos(slowQueryMillis);
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = new OperationStats();
+        }
+    }
+
+    /**
+     *
+     * @param slowQueryMillis Operations taking at least this long are logged, 0 disables slow query log
+     * @throws IllegalArgumentException if threshold is negative
+     */
+    public void setSlowQueryMillis(long slowQueryMillis) throws IllegalArgumentException {
+        this.slowQueryNanos = toSlowQueryNanos(slowQueryMillis);
+    }
+
+    private static long toSlowQueryNanos(long slowQueryMillis) throws IllegalArgumentException {
+        if (slowQueryMillis < 0) throw new IllegalArgumentException("Incorrect slow query threshold");
+        return TimeUnit.MILLISECONDS.toNanos(slowQueryMillis);
+    }
+
+    public long getSlowQueryMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowQueryNanos);
+    }
+
+    public OperationStats get(Operation operation) {
+        return stats[operation.ordinal()];
+    }
+
+    /**
+     * Runs operation and records its latency, returned rows and failure
+     * @param rows Counts rows of operation result
+     */
+    <T> T measure(Operation operation, Supplier<T> query, ToIntFunction<? super T> rows) {
+        int[] handled = handledErrors.get();
+        int handledBefore = handled[0];
+        QueryEvent event = beginEvent();
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = query.get();
+        } catch (RuntimeException | Error e) {
+            record(operation, start, event, 0, false);
+            throw e;
+        }
+        record(operation, start, event, rows.applyAsInt(result), handled[0] == handledBefore);
+        return result;
+    }
+
+    /**
+     * Runs operation which does not return rows and records its latency and failure
+     */
+    void measure(Operation operation, Runnable query) {
+        int[] handled = handledErrors.get();
+        int handledBefore = handled[0];
+        QueryEvent event = beginEvent();
+        long start = System.nanoTime();
+        try {
+            query.run();
+        } catch (RuntimeException | Error e) {
+            record(operation, start, event, 0, false);
+            throw e;
+        }
+        record(operation, start, event, 0, handled[0] == handledBefore);
+    }
+
+    /**
+     * Called by storage which handles exception itself, e.g. logs it and returns empty result,
+     * so the operation measured on current thread is counted as failed
+     */
+    static void errorHandled() {
+        handledErrors.get()[0]++;
+    }
+
+    /**
+     *
+     * @return Started flight recorder event <p> <code>null</code> if event is not enabled
+     */
+    private static QueryEvent beginEvent() {
+        if (!QUERY_EVENT.isEnabled()) return null;
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        return event;
+    }
+
+    private void record(Operation operation, long start, QueryEvent event, int rows, boolean succeeded) {
+        long elapsed = System.nanoTime() - start;
+        OperationStats operationStats = stats[operation.ordinal()];
+        operationStats.calls.increment();
+        if (!succeeded) operationStats.errors.increment();
+        if (rows > 0) operationStats.rows.add(rows);
+        operationStats.latency.record(elapsed);
+
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation.name();
+                event.rows = rows;
+                event.succeeded = succeeded;
+                event.commit();
+            }
+        }
+
+        long threshold = slowQueryNanos;
+        if (threshold > 0 && elapsed >= threshold) {
+            System.out.println("Slow query: " + operation + " took " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms"
+                    + (succeeded ? ", " + rows + " rows" : ", failed"));
+        }
+    }
+
+    public void reset() {
+        for (OperationStats operationStats : stats) {
+            operationStats.reset();
+        }
+    }
+
+    /**
+     *
+     * @return Table of called operations with number of calls, errors, rows and p50 / p99 / p99.9 latency in microseconds
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder(String.format("%-36s %10s %8s %12s %10s %10s %10s%n",
+                "Operation", "Calls", "Errors", "Rows", "p50 us", "p99 us", "p999 us"));
+        for (Operation operation : OPERATIONS) {
+            OperationStats operationStats = get(operation);
+            long calls = operationStats.getCalls();
+            if (calls == 0) continue;
+            LatencyHistogram latency = operationStats.getLatency();
+            report.append(String.format("%-36s %10d %8d %12d %10d %10d %10d%n", operation, calls, operationStats.getErrors(),
+                    operationStats.getRows(), latency.getPercentile(50) / 1000, latency.getPercentile(99) / 1000, latency.getPercentile(99.9) / 1000));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,165 @@
+package lot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index of flights by route and by origin airport, keyed by codes packed with {@link AirportCode}.
+ * Flights of each route are ordered by departure time, so lookups take time proportional to number of returned flights.
+ * <p> Kept up to date as {@link FlightListener} of changes made through {@link Database}.
+ * Returned flights are new objects created without passengers, which are loaded from database only if needed.
+ * Flights with airport codes other than 3 letters A-Z are not indexed.
+ * <p> Reads do not lock, updates are serialized. Thread-safe.
+ * @see Database#setRouteIndex(RouteIndex)
+ */
+public class RouteIndex implements FlightListener {
+    private final Map<Integer, ConcurrentSkipListMap<IndexedFlight.Key, IndexedFlight>> byRoute = new ConcurrentHashMap<>();
+    private final Map<Integer, ConcurrentSkipListMap<IndexedFlight.Key, IndexedFlight>> byOrigin = new ConcurrentHashMap<>();
+    private final Map<String, IndexedFlight> byFlightNumber = new ConcurrentHashMap<>();
+
+    /**
+     * Adds flights to index, e.g. all flights when index is created
+     * @param flights Flights with database ids, closed by caller
+     */
+    public void load(Stream<Flight> flights) {
+        flights.forEach(this::flightSaved);
+    }
+
+    /**
+     * Checks if route can be answered by index, other routes can not match any indexed flight
+     * @param originAirport IATA airport of origin code, upper case
+     * @param destinationAirport IATA airport of destination code, upper case
+     */
+    public static boolean canIndex(String originAirport, String destinationAirport) {
+        return AirportCode.pack(originAirport) != AirportCode.INVALID && AirportCode.pack(destinationAirport) != AirportCode.INVALID;
+    }
+
+    /**
+     *
+     * @param originAirport IATA airport of origin code, upper case
+     * @param destinationAirport IATA airport of destination code, upper case
+     * @param includeOppositeDirection Should return also flights going from destination to origin
+     * @return Flights on route, ordered by departure time
+     */
+    public List<Flight> getAllFlightsOnRoute(String originAirport, String destinationAirport, boolean includeOppositeDirection) {
+        int origin = AirportCode.pack(originAirport);
+        int destination = AirportCode.pack(destinationAirport);
+        if (origin == AirportCode.INVALID || destination == AirportCode.INVALID) return new ArrayList<>();
+
+        Collection<IndexedFlight> there = flights(byRoute, AirportCode.route(origin, destination));
+        if (!includeOppositeDirection || origin == destination) return toFlights(there);
+        return merge(there, flights(byRoute, AirportCode.route(destination, origin)));
+    }
+
+    /**
+     *
+     * @param originAirport IATA airport of origin code, upper case
+     * @return Flights departing from airport, ordered by departure time
+     */
+    public List<Flight> getAllFlightsFromAirport(String originAirport) {
+        int origin = AirportCode.pack(originAirport);
+        if (origin == AirportCode.INVALID) return new ArrayList<>();
+        return toFlights(flights(byOrigin, origin));
+    }
+
+    public int size() {
+        return byFlightNumber.size();
+    }
+
+    @Override
+    public synchronized void flightSaved(Flight flight) {
+        if (flight.getDbID() <= 0) return;
+        replace(byFlightNumber.get(flight.getFlightNumber()), IndexedFlight.of(flight));
+    }
+
+    @Override
+    public synchronized void flightDeleted(String flightNumber) {
+        IndexedFlight entry = byFlightNumber.remove(flightNumber.toUpperCase());
+        if (entry == null) return;
+        remove(byRoute, routeOf(entry), entry.key());
+        remove(byOrigin, AirportCode.pack(entry.originAirport()), entry.key());
+    }
+
+    @Override
+    public synchronized void seatsChanged(Flight flight, int availableSeatsDelta) {
+        IndexedFlight entry = byFlightNumber.get(flight.getFlightNumber());
+        if (entry == null) return;
+        replace(entry, entry.withAvailableSeats(entry.availableSeats() + availableSeatsDelta));
+    }
+
+    /**
+     * New entry is added before old one is removed, so flight does not disappear from concurrent lookups
+     */
+    private void replace(IndexedFlight oldEntry, IndexedFlight newEntry) {
+        int route = routeOf(newEntry);
+        int origin = AirportCode.pack(newEntry.originAirport());
+        put(byRoute, route, newEntry);
+        put(byOrigin, origin, newEntry);
+        if (oldEntry != null) {
+            boolean sameKey = oldEntry.key().equals(newEntry.key());
+            int oldRoute = routeOf(oldEntry);
+            int oldOrigin = AirportCode.pack(oldEntry.originAirport());
+            if (!sameKey || oldRoute != route) remove(byRoute, oldRoute, oldEntry.key());
+            if (!sameKey || oldOrigin != origin) remove(byOrigin, oldOrigin, oldEntry.key());
+        }
+        byFlightNumber.put(newEntry.flightNumber(), newEntry);
+    }
+
+    private static int routeOf(IndexedFlight entry) {
+        int origin = AirportCode.pack(entry.originAirport());
+        int destination = AirportCode.pack(entry.destinationAirport());
+        if (origin == AirportCode.INVALID || destination == AirportCode.INVALID) return AirportCode.INVALID;
+        return AirportCode.route(origin, destination);
+    }
+
+    private static void put(Map<Integer, ConcurrentSkipListMap<IndexedFlight.Key, IndexedFlight>> index, int key, IndexedFlight entry) {
+        if (key == AirportCode.INVALID) return;
+        index.computeIfAbsent(key, k -> new ConcurrentSkipListMap<>()).put(entry.key(), entry);
+    }
+
+    private static void remove(Map<Integer, ConcurrentSkipListMap<IndexedFlight.Key, IndexedFlight>> index, int key, IndexedFlight.Key flightKey) {
+        if (key == AirportCode.INVALID) return;
+        ConcurrentSkipListMap<IndexedFlight.Key, IndexedFlight> flights = index.get(key);
+        if (flights != null) flights.remove(flightKey);
+    }
+
+    private static Collection<IndexedFlight> flights(Map<Integer, ConcurrentSkipListMap<IndexedFlight.Key, IndexedFlight>> index, int key) {
+        ConcurrentSkipListMap<IndexedFlight.Key, IndexedFlight> flights = index.get(key);
+        return flights == null ? List.of() : flights.values();
+    }
+
+    private static List<Flight> toFlights(Collection<IndexedFlight> entries) {
+        List<Flight> flights = new ArrayList<>();
+        for (IndexedFlight entry : entries) {
+            flights.add(entry.toFlight());
+        }
+        return flights;
+    }
+
+    /**
+     * Merges flights of both directions, both already ordered by departure time
+     */
+    private static List<Flight> merge(Collection<IndexedFlight> first, Collection<IndexedFlight> second) {
+        List<Flight> flights = new ArrayList<>();
+        Iterator<IndexedFlight> a = first.iterator();
+        Iterator<IndexedFlight> b = second.iterator();
+        IndexedFlight nextA = a.hasNext() ? a.next() : null;
+        IndexedFlight nextB = b.hasNext() ? b.next() : null;
+        while (nextA != null || nextB != null) {
+            if (nextB == null || (nextA != null && nextA.key().compareTo(nextB.key()) <= 0)) {
+                flights.add(nextA.toFlight());
+                nextA = a.hasNext() ? a.next() : null;
+            } else {
+                flights.add(nextB.toFlight());
+                nextB = b.hasNext() ? b.next() : null;
+            }
+        }
+        return flights;
+    }
+}
@@ -0,0 +1,312 @@
+package lot;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+
+/**
+ * Imports flight schedules and passenger lists from CSV files, much faster than creating Flight and Passenger objects one by one.
+ * <p> File is read in chunks. Rows of a chunk are parsed and validated in parallel while previous chunk is written,
+ * existing rows are found with one bulk lookup per chunk, and each chunk is inserted in a single batched transaction.
+ * Invalid and duplicate rows (in file or in database) are skipped and reported, so one bad row does not stop the import.
+ * <p> Flights file columns: <code>flight_number,origin_airport,destination_airport,departure_time,estimated_arrival_time,max_seats</code>,
+ * times in format YYYY-MM-DD hh:mm:ss.
+ * <p> Passengers file columns: <code>name,surname,phone_number</code>.
+ * <p> Values can not contain commas. Optional header line starting with column name is skipped.
+ */
+public class ScheduleImporter {
+    public static final int DEFAULT_CHUNK_SIZE = 10_000;
+
+    private final int chunkSize;
+
+    public ScheduleImporter() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     *
+     * @param chunkSize Number of rows parsed, looked up and written together, in one transaction
+     * @throws IllegalArgumentException if chunk size is not positive
+     */
+    public ScheduleImporter(int chunkSize) throws IllegalArgumentException {
+        if (chunkSize <= 0) throw new IllegalArgumentException("Incorrect chunk size");
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Parsed row: either value or reason why row was rejected
+     */
+    private record Row<T>(long line, T value, String error) {
+    }
+
+    /**
+     * How rows of one file type are parsed, deduplicated and written
+     */
+    private interface RowType<T> {
+        String header();
+
+        int columns();
+
+        T parse(String[] values);
+
+        String key(T value);
+
+        Set<String> existingKeys(List<T> values);
+
+        void write(List<T> values);
+
+        String duplicateReason();
+    }
+
+    private static final RowType<Flight> FLIGHTS = new RowType<>() {
+        @Override
+        public String header() {
+            return "flight_number";
+        }
+
+        @Override
+        public int columns() {
+            return 6;
+        }
+
+        @Override
+        public Flight parse(String[] values) {
+            return Flight.unsaved(values[0], values[1], values[2], Timestamp.valueOf(values[3]), Timestamp.valueOf(values[4]), Integer.parseInt(values[5]));
+        }
+
+        @Override
+        public String key(Flight flight) {
+            return flight.getFlightNumber();
+        }
+
+        @Override
+        public Set<String> existingKeys(List<Flight> flights) {
+            List<String> flightNumbers = new ArrayList<>(flights.size());
+            for (Flight flight : flights) {
+                flightNumbers.add(flight.getFlightNumber());
+            }
+            return Database.getExistingFlightNumbers(flightNumbers);
+        }
+
+        @Override
+        public void write(List<Flight> flights) {
+            Database.addFlights(flights);
+        }
+
+        @Override
+        public String duplicateReason() {
+            return "Flight with this number already exists";
+        }
+    };
+
+    private static final RowType<Passenger> PASSENGERS = new RowType<>() {
+        @Override
+        public String header() {
+            return "name";
+        }
+
+        @Override
+        public int columns() {
+            return 3;
+        }
+
+        @Override
+        public Passenger parse(String[] values) {
+            if (values[0].isEmpty() || values[1].isEmpty()) throw new IllegalArgumentException("Missing name or surname");
+            return Passenger.unsaved(values[0], values[1], values[2]);
+        }
+
+        @Override
+        public String key(Passenger passenger) {
+            // Database compares names case-insensitively, so rows differing only in case are the same passenger
+            return passenger.getName().toUpperCase(Locale.ROOT) + '\0' + passenger.getSurname().toUpperCase(Locale.ROOT);
+        }
+
+        @Override
+        public Set<String> existingKeys(List<Passenger> passengers) {
+            Set<String> keys = new HashSet<>();
+            for (Passenger passenger : Database.getExistingPassengers(passengers)) {
+                keys.add(key(passenger));
+            }
+            return keys;
+        }
+
+        @Override
+        public void write(List<Passenger> passengers) {
+            Database.addPassengers(passengers);
+        }
+
+        @Override
+        public String duplicateReason() {
+            return "Such passenger already exists";
+        }
+    };
+
+    /**
+     * Imports flights, skipping ones whose flight number already exists in database or earlier in file
+     * @param file CSV file encoded in UTF-8
+     * @return Report of imported and rejected rows
+     * @throws IOException if file can not be read
+     */
+    public ImportReport importFlights(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importFlights(reader);
+        }
+    }
+
+    /**
+     * @see #importFlights(Path)
+     */
+    public ImportReport importFlights(BufferedReader reader) throws IOException {
+        return run(reader, FLIGHTS);
+    }
+
+    /**
+     * Imports passengers, skipping ones whose name and surname already exist in database or earlier in file
+     * @param file CSV file encoded in UTF-8
+     * @return Report of imported and rejected rows
+     * @throws IOException if file can not be read
+     */
+    public ImportReport importPassengers(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importPassengers(reader);
+        }
+    }
+
+    /**
+     * @see #importPassengers(Path)
+     */
+    public ImportReport importPassengers(BufferedReader reader) throws IOException {
+        return run(reader, PASSENGERS);
+    }
+
+    private <T> ImportReport run(BufferedReader reader, RowType<T> type) throws IOException {
+        ImportReport report = new ImportReport();
+        Set<String> seenKeys = new HashSet<>();
+        long lineNo = 0;
+        CompletableFuture<List<Row<T>>> previous = null;
+
+        String line = reader.readLine();
+        if (line != null && line.startsWith(type.header())) {
+            line = reader.readLine();
+            lineNo++;
+        }
+        while (line != null) {
+            List<String> lines = new ArrayList<>(chunkSize);
+            long firstLine = lineNo + 1;
+            int rows = 0;
+            while (line != null && lines.size() < chunkSize) {
+                lines.add(line);
+                if (!line.isBlank()) rows++;
+                lineNo++;
+                line = reader.readLine();
+            }
+            report.rowsRead(rows);
+
+            // Next chunk is parsed in background while the previous one is looked up and written
+            CompletableFuture<List<Row<T>>> parsing = parse(lines, firstLine, type);
+            if (previous != null) write(join(previous), type, seenKeys, report);
+            previous = parsing;
+        }
+        if (previous != null) write(join(previous), type, seenKeys, report);
+
+        report.finish();
+        return report;
+    }
+
+    /**
+     * Parses and validates lines in parallel, skipping blank ones
+     * @param firstLine Line number of the first of given lines
+     */
+    private static <T> CompletableFuture<List<Row<T>>> parse(List<String> lines, long firstLine, RowType<T> type) {
+        return CompletableFuture.supplyAsync(() -> IntStream.range(0, lines.size()).parallel()
+                .filter(i -> !lines.get(i).isBlank())
+                .mapToObj(i -> parseRow(lines.get(i), firstLine + i, type))
+                .toList());
+    }
+
+    private static <T> Row<T> parseRow(String line, long lineNo, RowType<T> type) {
+        String[] values = line.split(",", -1);
+        if (values.length != type.columns()) return new Row<>(lineNo, null, "Expected " + type.columns() + " columns, got " + values.length);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = values[i].trim();
+        }
+        try {
+            return new Row<>(lineNo, type.parse(values), null);
+        } catch (IllegalArgumentException e) {
+            return new Row<>(lineNo, null, e.getMessage());
+        }
+    }
+
+    private static <T> List<Row<T>> join(CompletableFuture<List<Row<T>>> parsing) {
+        try {
+            return parsing.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Skips rows rejected by parser and duplicates, writes remaining ones in a single transaction
+     */
+    private static <T> void write(List<Row<T>> rows, RowType<T> type, Set<String> seenKeys, ImportReport report) {
+        List<ImportReport.Rejection> rejections = new ArrayList<>();
+        List<Row<T>> unique = new ArrayList<>(rows.size());
+        for (Row<T> row : rows) {
+            if (row.error() != null) {
+                rejections.add(new ImportReport.Rejection(row.line(), row.error()));
+            } else if (!seenKeys.add(type.key(row.value()))) {
+                rejections.add(new ImportReport.Rejection(row.line(), "Duplicate of earlier row"));
+            } else {
+                unique.add(row);
+            }
+        }
+
+        List<T> values = new ArrayList<>(unique.size());
+        for (Row<T> row : unique) {
+            values.add(row.value());
+        }
+        Set<String> existing = values.isEmpty() ? Set.of() : type.existingKeys(values);
+        List<Row<T>> newRows = new ArrayList<>(unique.size());
+        List<T> newValues = new ArrayList<>(unique.size());
+        for (Row<T> row : unique) {
+            if (existing.contains(type.key(row.value()))) {
+                rejections.add(new ImportReport.Rejection(row.line(), type.duplicateReason()));
+            } else {
+                newRows.add(row);
+                newValues.add(row.value());
+            }
+        }
+
+        if (!newValues.isEmpty()) {
+            try {
+                type.write(newValues);
+                report.imported(newValues.size());
+            } catch (RuntimeException e) {
+                // Whole chunk is rolled back, its rows are reported instead of stopping the import
+                for (Row<T> row : newRows) {
+                    seenKeys.remove(type.key(row.value()));
+                    rejections.add(new ImportReport.Rejection(row.line(), "Write failed: " + e.getMessage()));
+                }
+            }
+        }
+
+        rejections.sort(Comparator.comparingLong(ImportReport.Rejection::line));
+        for (ImportReport.Rejection rejection : rejections) {
+            report.rejected(rejection.line(), rejection.reason());
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package lot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Brings database schema up to date by running versioned SQL scripts from <code>migrations</code> directory.
+ * <p> Applied versions are recorded in <code>schema_version</code> table, so each script runs only once per database.
+ * <p> MySQL does not run schema changes in transactions, so script which failed halfway is run again from the start next time.
+ * Errors meaning that column or index is already added or dropped are ignored, so statements applied before failure become no-ops.
+ * <p> <code>SELECT</code> statements in scripts are checks: migration stops before next statement if check returns any rows,
+ * reporting them, e.g. rows which would violate unique index added by the script.
+ */
+public class SchemaMigrator {
+    /**
+     * Migration scripts in order of versions, file names follow format V{version}__{description}.sql
+     */
+    private static final String[] MIGRATIONS = {
+            "V1__baseline.sql",
+            "V2__query_indexes.sql",
+            "V3__booking_constraints.sql",
+            "V4__route_departure_index.sql",
+            "V5__passenger_name_index.sql",
+            "V6__change_log.sql"
+    };
+    private static final String LOCK_NAME = "lot_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+    private static final int REPORTED_ROWS = 20;
+
+    // MySQL error codes of schema changes which are already applied
+    private static final int DUPLICATE_COLUMN = 1060;
+    private static final int DUPLICATE_INDEX = 1061;
+    private static final int CANNOT_DROP_COLUMN_OR_INDEX = 1091;
+
+    private SchemaMigrator() {
+    }
+
+    /**
+     * Runs all migrations not yet applied to database.
+     * Guarded by named database lock, so several application instances starting at once do not run the same script twice.
+     * @param pool Connection pool of migrated database
+     * @return Number of applied migrations
+     * @throws SQLException if migration failed or its check found rows preventing it, database is left at last successfully applied version
+     */
+    public static int migrate(ConnectionPool pool) throws SQLException {
+        int applied = 0;
+        try (PooledConnection connection = pool.borrow();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS `schema_version` (" +
+                    "`version` INT UNSIGNED NOT NULL, " +
+                    "`description` VARCHAR(100) NOT NULL DEFAULT '', " +
+                    "`installed_on` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                    "PRIMARY KEY (`version`))");
+
+            lock(connection);
+            try {
+                int currentVersion = getCurrentVersion(connection);
+                for (String migration : MIGRATIONS) {
+                    int version = getVersion(migration);
+                    if (version <= currentVersion) continue;
+
+                    for (String sql : readStatements(migration)) {
+                        execute(statement, migration, sql);
+                    }
+                    try (PreparedStatement insert = connection.prepareUncachedStatement("INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+                        insert.setInt(1, version);
+                        insert.setString(2, getDescription(migration));
+                        insert.executeUpdate();
+                    }
+                    applied++;
+                    System.out.println("Applied schema migration " + migration);
+                }
+            } finally {
+                unlock(connection);
+            }
+        }
+        return applied;
+    }
+
+    /**
+     *
+     * @return Highest applied migration version <p> 0 if database has no migrations applied
+     */
+    public static int getCurrentVersion(PooledConnection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    /**
+     * Runs single statement of migration script, see class description for checks and ignored errors
+     */
+    private static void execute(Statement statement, String migration, String sql) throws SQLException {
+        boolean isCheck;
+        try {
+            isCheck = statement.execute(sql);
+        } catch (SQLException e) {
+            int errorCode = e.getErrorCode();
+            if (errorCode == DUPLICATE_COLUMN || errorCode == DUPLICATE_INDEX || errorCode == CANNOT_DROP_COLUMN_OR_INDEX) {
+                System.out.println("Schema migration " + migration + " skipped already applied change: " + e.getMessage());
+                return;
+            }
+            throw e;
+        }
+        if (!isCheck) return;
+
+        try (ResultSet resultSet = statement.getResultSet()) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            List<String> rows = new ArrayList<>();
+            int count = 0;
+            while (resultSet.next()) {
+                if (++count > REPORTED_ROWS) continue;
+                StringBuilder row = new StringBuilder();
+                for (int column = 1; column <= metaData.getColumnCount(); column++) {
+                    if (column > 1) row.append(", ");
+                    row.append(metaData.getColumnLabel(column)).append('=').append(resultSet.getString(column));
+                }
+                rows.add(row.toString());
+            }
+            if (count > 0) {
+                throw new SQLException("Schema migration " + migration + " can not be applied, check found " + count + " rows (first " + rows.size() + " listed) which have to be fixed first:\n"
+                        + sql + "\n" + String.join("\n", rows));
+            }
+        }
+    }
+
+    private static void lock(PooledConnection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareUncachedStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next() || resultSet.getInt(1) != 1) throw new SQLException("Could not acquire schema migration lock");
+            }
+        }
+    }
+
+    private static void unlock(PooledConnection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareUncachedStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.executeQuery().close();
+        }
+    }
+
+    private static int getVersion(String migration) {
+        return Integer.parseInt(migration.substring(1, migration.indexOf("__")));
+    }
+
+    private static String getDescription(String migration) {
+        return migration.substring(migration.indexOf("__") + 2, migration.lastIndexOf('.')).replace('_', ' ');
+    }
+
+    /**
+     * Reads migration script and splits it into single statements. Scripts must not contain semicolons other than statement terminators.
+     * @param migration Migration file name
+     * @return List of SQL statements without comments
+     */
+    private static List<String> readStatements(String migration) throws SQLException {
+        String script;
+        try (InputStream inputStream = SchemaMigrator.class.getResourceAsStream("/migrations/" + migration)) {
+            if (inputStream == null) throw new SQLException("Migration " + migration + " not found on classpath");
+            script = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SQLException("Could not read migration " + migration, e);
+        }
+
+        StringBuilder withoutComments = new StringBuilder();
+        for (String line : script.split("\n")) {
+            if (!line.trim().startsWith("--")) withoutComments.append(line).append('\n');
+        }
+
+        List<String> statements = new ArrayList<>();
+        for (String sql : withoutComments.toString().split(";")) {
+            if (!sql.isBlank()) statements.add(sql.trim());
+        }
+        return statements;
+    }
+}
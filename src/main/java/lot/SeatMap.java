@@ -0,0 +1,254 @@
+package lot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Seat occupancy of a single flight.
+ * <p> Keeps occupancy bitmap, seat to passenger array and passenger id to seat hash index,
+ * so checking, assigning and releasing seat takes constant time and finding free or occupied seats scans 64 seats per step.
+ * <p> Seats are numbered from 1 to number of seats. Seat 0 of bookings made before seat numbers started from 1
+ * is listed as occupied, but never as free seat. Passenger array and hash index are sized by booked seats
+ * and grow on demand, so empty flights hold only the bitmap. Not thread-safe.
+ */
+class SeatMap {
+    private static final int NO_SEAT = -1;
+    private static final int MAX_SEAT_NUMBER = 65535;   // range of bookings.seat_number column
+    private static final int EMPTY_KEY = 0;   // database ids start from 1
+    private static final int MIN_INDEX_SIZE = 8;
+    private static final Passenger[] NO_PASSENGERS = new Passenger[0];
+    private static final int[] NO_SLOTS = new int[0];
+
+    private final BitSet occupied;
+    private Passenger[] seatToPassenger;
+    private int capacity;
+
+    // Open addressing passenger id -> seat index, linear probing, capacity is always power of two or 0 before first seat
+    private int[] passengerIds = NO_SLOTS;
+    private int[] passengerSeats = NO_SLOTS;
+    private int size;
+
+    SeatMap(int capacity) {
+        this.capacity = Math.max(capacity, 0);
+        this.occupied = new BitSet(this.capacity + 1);
+        this.seatToPassenger = NO_PASSENGERS;
+    }
+
+    /**
+     * Builds seat map from passengers loaded from database
+     * @param capacity Number of seats on flight
+     * @param passengersAndSeats Map: key -> Passenger object <p> value -> booked seat number
+     */
+    static SeatMap of(int capacity, Map<Passenger, Integer> passengersAndSeats) {
+        SeatMap seatMap = new SeatMap(capacity);
+        if (!passengersAndSeats.isEmpty()) seatMap.rehash(indexSizeFor(passengersAndSeats.size()));
+        for (Map.Entry<Passenger, Integer> entry : passengersAndSeats.entrySet()) {
+            seatMap.assign(entry.getKey(), entry.getValue());
+        }
+        return seatMap;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    boolean isOccupied(int seatNo) {
+        return seatNo >= 0 && seatNo <= capacity && occupied.get(seatNo);
+    }
+
+    /**
+     *
+     * @return Passenger sitting on given seat <p> <code>null</code> if seat is free
+     */
+    Passenger getPassenger(int seatNo) {
+        return isOccupied(seatNo) ? seatToPassenger[seatNo] : null;
+    }
+
+    /**
+     *
+     * @param passengerId Passenger database id
+     * @return Seat number of passenger <p> -1 if passenger has no seat
+     */
+    int getSeat(int passengerId) {
+        if (passengerId == EMPTY_KEY || size == 0) return NO_SEAT;
+        int slot = findSlot(passengerId);
+        return passengerIds[slot] == passengerId ? passengerSeats[slot] : NO_SEAT;
+    }
+
+    boolean contains(Passenger passenger) {
+        return getSeat(passenger.getDbID()) != NO_SEAT;
+    }
+
+    /**
+     * Puts passenger on seat, previous occupant of the seat or previous seat of passenger is released.
+     * Seat numbers above capacity (e.g. booked before capacity was known) grow the map.
+     * @throws IllegalArgumentException if seat number is negative or above 65535
+     */
+    void assign(Passenger passenger, int seatNo) throws IllegalArgumentException {
+        if (seatNo < 0 || seatNo > MAX_SEAT_NUMBER) throw new IllegalArgumentException("Incorrect seat number " + seatNo);
+        if (seatNo > capacity) grow(seatNo);
+        Passenger previous = getPassenger(seatNo);
+        if (previous != null) remove(previous.getDbID());
+        remove(passenger.getDbID());
+
+        occupied.set(seatNo);
+        if (seatNo >= seatToPassenger.length) {
+            int length = Math.min(Math.max(seatNo + 1, seatToPassenger.length * 2), capacity + 1);
+            seatToPassenger = Arrays.copyOf(seatToPassenger, length);
+        }
+        seatToPassenger[seatNo] = passenger;
+        put(passenger.getDbID(), seatNo);
+    }
+
+    /**
+     * Releases seat of given passenger
+     * @param passengerId Passenger database id
+     * @return Released seat number <p> -1 if passenger had no seat
+     */
+    int remove(int passengerId) {
+        if (passengerId == EMPTY_KEY || size == 0) return NO_SEAT;
+        int slot = findSlot(passengerId);
+        if (passengerIds[slot] != passengerId) return NO_SEAT;
+        int seatNo = passengerSeats[slot];
+        deleteSlot(slot);
+
+        occupied.clear(seatNo);
+        seatToPassenger[seatNo] = null;
+        return seatNo;
+    }
+
+    int getOccupiedCount() {
+        return size;
+    }
+
+    int getFreeCount() {
+        return capacity - occupied.cardinality() + (occupied.get(0) ? 1 : 0);
+    }
+
+    /**
+     *
+     * @return Occupied seat numbers in ascending order
+     */
+    List<Integer> getOccupiedSeats() {
+        List<Integer> seats = new ArrayList<>(size);
+        for (int seatNo = occupied.nextSetBit(0); seatNo >= 0; seatNo = occupied.nextSetBit(seatNo + 1)) {
+            seats.add(seatNo);
+        }
+        return seats;
+    }
+
+    /**
+     *
+     * @return Free seat numbers in ascending order
+     */
+    List<Integer> getFreeSeats() {
+        List<Integer> seats = new ArrayList<>(Math.max(capacity - size, 0));
+        for (int seatNo = occupied.nextClearBit(1); seatNo <= capacity; seatNo = occupied.nextClearBit(seatNo + 1)) {
+            seats.add(seatNo);
+        }
+        return seats;
+    }
+
+    /**
+     *
+     * @return Lowest free seat number <p> -1 if all seats are occupied
+     */
+    int getFirstFreeSeat() {
+        int seatNo = occupied.nextClearBit(1);
+        return seatNo <= capacity ? seatNo : NO_SEAT;
+    }
+
+    /**
+     *
+     * @return Passengers in order of their seats
+     */
+    List<Passenger> getPassengers() {
+        List<Passenger> passengers = new ArrayList<>(size);
+        for (int seatNo = occupied.nextSetBit(0); seatNo >= 0; seatNo = occupied.nextSetBit(seatNo + 1)) {
+            passengers.add(seatToPassenger[seatNo]);
+        }
+        return passengers;
+    }
+
+    /**
+     *
+     * @return Map: key -> Passenger object <p> value -> seat number, in order of seats
+     */
+    Map<Passenger, Integer> toMap() {
+        Map<Passenger, Integer> map = new LinkedHashMap<>();
+        for (int seatNo = occupied.nextSetBit(0); seatNo >= 0; seatNo = occupied.nextSetBit(seatNo + 1)) {
+            map.put(seatToPassenger[seatNo], seatNo);
+        }
+        return map;
+    }
+
+    private void grow(int seatNo) {
+        capacity = seatNo;
+    }
+
+    private int findSlot(int passengerId) {
+        int mask = passengerIds.length - 1;
+        int slot = mix(passengerId) & mask;
+        while (passengerIds[slot] != EMPTY_KEY && passengerIds[slot] != passengerId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void put(int passengerId, int seatNo) {
+        if (passengerId == EMPTY_KEY) return;
+        if ((size + 1) * 2 > passengerIds.length) rehash(Math.max(passengerIds.length * 2, MIN_INDEX_SIZE));
+        int slot = findSlot(passengerId);
+        if (passengerIds[slot] == EMPTY_KEY) size++;
+        passengerIds[slot] = passengerId;
+        passengerSeats[slot] = seatNo;
+    }
+
+    /**
+     * Removes slot and shifts back following entries of the probe sequence, so no tombstones are needed
+     */
+    private void deleteSlot(int slot) {
+        int mask = passengerIds.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (passengerIds[next] != EMPTY_KEY) {
+            int home = mix(passengerIds[next]) & mask;
+            // Entry can fill the hole if its home slot is not between hole (exclusive) and its current slot (inclusive)
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                passengerIds[hole] = passengerIds[next];
+                passengerSeats[hole] = passengerSeats[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        passengerIds[hole] = EMPTY_KEY;
+        size--;
+    }
+
+    private void rehash(int newSize) {
+        int[] oldIds = passengerIds;
+        int[] oldSeats = passengerSeats;
+        passengerIds = new int[newSize];
+        passengerSeats = new int[newSize];
+        size = 0;
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] != EMPTY_KEY) put(oldIds[i], oldSeats[i]);
+        }
+    }
+
+    /**
+     * Smallest index size keeping load factor of given number of passengers at most 0.5
+     */
+    private static int indexSizeFor(int passengers) {
+        return Math.max(Integer.highestOneBit(passengers * 2 - 1) << 1, MIN_INDEX_SIZE);
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,257 @@
+package lot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Compact binary copy of all flights, passengers and bookings, used to warm up a restarted application instance
+ * without reading whole database.
+ * <p> File is versioned and starts with change log sequence number to catch up from ({@link JdbcStorage#getSettledChangeSequence()}),
+ * so changes made after export, or still uncommitted during it, can be applied on top of loaded snapshot:
+ * <pre>
+ * Snapshot snapshot = Snapshot.load(file);
+ * ChangeLogPoller poller = new ChangeLogPoller(storage, snapshot.getChangeSequence(), ChangeLogPoller.DEFAULT_POLL_INTERVAL_MILLIS);
+ * Database.setDepartureIndex(new DepartureIndex(), snapshot);
+ * poller.start();
+ * </pre>
+ * <p> Snapshot is read with memory-mapped I/O in a single pass, so it can not be larger than 2 GB.
+ * Airport codes are stored packed by {@link AirportCode}.
+ */
+public final class Snapshot {
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x4C4F5453;
+    private static final int BOOKINGS_BATCH_SIZE = 1000;
+
+    private final long changeSequence;
+    private final long createdAt;
+    private final List<Flight> flights;
+    private final List<Passenger> passengers;
+    private final int bookings;
+
+    private Snapshot(long changeSequence, long createdAt, List<Flight> flights, List<Passenger> passengers, int bookings) {
+        this.changeSequence = changeSequence;
+        this.createdAt = createdAt;
+        this.flights = flights;
+        this.passengers = passengers;
+        this.bookings = bookings;
+    }
+
+    /**
+     * Writes all flights, passengers and bookings stored in database to file.
+     * File is written next to target and moved over it when complete, so existing snapshot is never left half written.
+     * @param file Snapshot file, replaced if it exists
+     * @return Number of written flights, passengers and bookings in total
+     * @throws IOException if file could not be written
+     * @throws IllegalStateException if database storage does not record changes in change log, so snapshot could not catch up after load
+     */
+    public static long export(Path file) throws IOException, IllegalStateException {
+        long changeSequence = 0;
+        if (Database.getStorage() instanceof JdbcStorage jdbcStorage) {
+            if (!jdbcStorage.isChangeLogEnabled()) throw new IllegalStateException("Change log is disabled, changes made after export could not be applied to loaded snapshot");
+            // Sequence is read before data, so changes made during export are applied again on load instead of being lost
+            changeSequence = jdbcStorage.getSettledChangeSequence();
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        int flightCount;
+        int passengerCount;
+        int bookingCount = 0;
+        int passengersOffset;
+        int bookingsOffset;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(changeSequence);
+            out.writeLong(System.currentTimeMillis());
+
+            List<Integer> flightIds = new ArrayList<>();
+            out.writeInt(0);
+            try (Stream<Flight> stream = Database.streamAllFlights()) {
+                for (Flight flight : (Iterable<Flight>) stream::iterator) {
+                    out.writeInt(flight.getDbID());
+                    writeString(out, flight.getFlightNumber());
+                    writeAirport(out, flight.getOriginAirport());
+                    writeAirport(out, flight.getDestinationAirport());
+                    out.writeLong(flight.getDepartureTime().getTime());
+                    out.writeLong(flight.getEstimatedArrivalTime().getTime());
+                    out.writeInt(flight.getAvailableSeats());
+                    out.writeInt(flight.getMaxNumberOfSeats());
+                    flightIds.add(flight.getDbID());
+                }
+            }
+            flightCount = flightIds.size();
+
+            passengersOffset = out.size();
+            out.writeInt(0);
+            passengerCount = 0;
+            try (Stream<Passenger> stream = Database.streamAllPassengers()) {
+                for (Passenger passenger : (Iterable<Passenger>) stream::iterator) {
+                    out.writeInt(passenger.getDbID());
+                    writeString(out, passenger.getName());
+                    writeString(out, passenger.getSurname());
+                    writeString(out, passenger.getPhoneNumber());
+                    passengerCount++;
+                }
+            }
+
+            bookingsOffset = out.size();
+            out.writeInt(0);
+            for (int from = 0; from < flightIds.size(); from += BOOKINGS_BATCH_SIZE) {
+                List<Integer> batch = flightIds.subList(from, Math.min(from + BOOKINGS_BATCH_SIZE, flightIds.size()));
+                for (Map.Entry<Integer, Map<Passenger, Integer>> manifest : Database.getPassengersOnFlights(batch).entrySet()) {
+                    for (Map.Entry<Passenger, Integer> booking : manifest.getValue().entrySet()) {
+                        out.writeInt(manifest.getKey());
+                        out.writeInt(booking.getKey().getDbID());
+                        out.writeInt(booking.getValue());
+                        bookingCount++;
+                    }
+                }
+            }
+            if (out.size() == Integer.MAX_VALUE) throw new IOException("Snapshot larger than 2 GB is not supported");
+        }
+
+        // Section sizes are known only after sections are written
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, flightCount), 24);
+            channel.write(ByteBuffer.allocate(4).putInt(0, passengerCount), passengersOffset);
+            channel.write(ByteBuffer.allocate(4).putInt(0, bookingCount), bookingsOffset);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return (long) flightCount + passengerCount + bookingCount;
+    }
+
+    /**
+     * Reads snapshot file through memory-mapped I/O
+     * @param file Snapshot file written by {@link #export(Path)}
+     * @return Snapshot with flights, their passengers and sequence number to catch up from
+     * @throws IOException if file could not be read, is not a snapshot or has unsupported version
+     */
+    public static Snapshot load(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC) throw new IOException(file + " is not a snapshot file");
+            int version = buffer.getInt();
+            if (version != FORMAT_VERSION) throw new IOException("Unsupported snapshot version " + version);
+            long changeSequence = buffer.getLong();
+            long createdAt = buffer.getLong();
+
+            IndexedFlight[] rows = new IndexedFlight[buffer.getInt()];
+            Map<Integer, Map<Passenger, Integer>> manifests = new HashMap<>(rows.length * 2);
+            for (int i = 0; i < rows.length; i++) {
+                int id = buffer.getInt();
+                String flightNumber = readString(buffer);
+                String origin = readAirport(buffer);
+                String destination = readAirport(buffer);
+                long departureTime = buffer.getLong();
+                long arrivalTime = buffer.getLong();
+                rows[i] = new IndexedFlight(departureTime, id, flightNumber, origin, destination, arrivalTime, buffer.getInt(), buffer.getInt());
+                manifests.put(id, new HashMap<>());
+            }
+
+            int passengerCount = buffer.getInt();
+            List<Passenger> passengers = new ArrayList<>(passengerCount);
+            Map<Integer, Passenger> passengersById = new HashMap<>(passengerCount * 2);
+            for (int i = 0; i < passengerCount; i++) {
+                Passenger passenger = new Passenger(buffer.getInt(), readString(buffer), readString(buffer), readString(buffer));
+                passengers.add(passenger);
+                passengersById.put(passenger.getDbID(), passenger);
+            }
+
+            int bookingCount = buffer.getInt();
+            for (int i = 0; i < bookingCount; i++) {
+                Map<Passenger, Integer> manifest = manifests.get(buffer.getInt());
+                Passenger passenger = passengersById.get(buffer.getInt());
+                int seatNo = buffer.getInt();
+                if (manifest != null && passenger != null) manifest.put(passenger, seatNo);
+            }
+
+            List<Flight> flights = new ArrayList<>(rows.length);
+            for (IndexedFlight row : rows) {
+                flights.add(new Flight(row.id(), row.flightNumber(), row.originAirport(), row.destinationAirport(),
+                        new Timestamp(row.departureTime()), new Timestamp(row.estimatedArrivalTime()), row.availableSeats(), row.maxSeats(), manifests.get(row.id())));
+            }
+            return new Snapshot(changeSequence, createdAt, flights, passengers, bookingCount);
+        } catch (RuntimeException e) {
+            throw new IOException(file + " is corrupted", e);
+        }
+    }
+
+    /**
+     *
+     * @return Sequence number of change log entry changes after which have to be applied to snapshot, 0 if storage has no change log
+     */
+    public long getChangeSequence() {
+        return changeSequence;
+    }
+
+    public Timestamp getCreatedAt() {
+        return new Timestamp(createdAt);
+    }
+
+    /**
+     *
+     * @return Flights with their passengers, in order of database ids
+     */
+    public List<Flight> getFlights() {
+        return Collections.unmodifiableList(flights);
+    }
+
+    /**
+     *
+     * @return Passengers, each represented by a single object shared by manifests of flights
+     */
+    public List<Passenger> getPassengers() {
+        return Collections.unmodifiableList(passengers);
+    }
+
+    public int getBookingCount() {
+        return bookings;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes packed code, followed by the code itself only if it can not be packed
+     */
+    private static void writeAirport(DataOutputStream out, String code) throws IOException {
+        int packed = AirportCode.pack(code);
+        out.writeInt(packed);
+        if (packed == AirportCode.INVALID) writeString(out, code);
+    }
+
+    private static String readAirport(ByteBuffer buffer) {
+        int packed = buffer.getInt();
+        return packed == AirportCode.INVALID ? readString(buffer) : AirportCode.unpack(packed);
+    }
+}
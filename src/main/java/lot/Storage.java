@@ -0,0 +1,225 @@
+package lot;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Storage engine behind {@link Database}, keeping flights, passengers and their bookings.
+ * <p> Arguments are already validated by {@link Database}, flight cache is also handled there.
+ * Implementations have to be thread-safe.
+ * @see JdbcStorage
+ * @see InMemoryStorage
+ */
+public interface Storage extends AutoCloseable {
+
+    boolean doesFlightExists(String flightNumber);
+
+    /**
+     *
+     * @return Flight object if such exists <p> null otherwise
+     */
+    Flight getFlight(String flightNumber);
+
+    /**
+     *
+     * @param id Flight id
+     * @return Map: key -> Passenger object <p> value -> booked seat number
+     */
+    Map<Passenger, Integer> getPassengersOnFlight(int id);
+
+    /**
+     *
+     * @param flightIds Flight ids
+     * @return Map: key -> Flight id <p> value -> Map: key -> Passenger object, value -> booked seat number
+     */
+    Map<Integer, Map<Passenger, Integer>> getPassengersOnFlights(Collection<Integer> flightIds);
+
+    /**
+     *
+     * @return Map: key -> Flight object <p> value -> booked seat number
+     */
+    Map<Flight, Integer> getAllPassengerFlights(Passenger passenger);
+
+    /**
+     *
+     * @return Map: key -> Passenger object <p> value -> Map: key -> Flight object, value -> booked seat number.
+     * Flight booked by several passengers is represented by a single object.
+     */
+    Map<Passenger, Map<Flight, Integer>> getAllPassengersFlights(Collection<Passenger> passengers);
+
+    boolean doesPassengerExists(String name, String surname);
+
+    /**
+     *
+     * @return Passenger object if found <p> <code>null</code> if passenger not found
+     */
+    Passenger getPassenger(String name, String surname);
+
+    /**
+     * Deletes passenger together with all bookings
+     * @param id Passenger id
+     */
+    void deletePassenger(int id);
+
+    /**
+     *
+     * @return Added flight id <p> -1 if flight could not be added
+     */
+    int addFlight(Flight flight);
+
+    /**
+     * Deletes flight together with all bookings
+     */
+    void deleteFlight(String flightNumber);
+
+    /**
+     * Writes route and times of flight. Number of available seats is not written, as it is changed by bookings
+     * made meanwhile through other objects of the same flight, and a stale object would undo them.
+     */
+    void updateFlight(Flight flight);
+
+    /**
+     * Writes changes recorded by unit of work atomically, only changed columns are written.
+     * Available seats are changed by {@link Flight#getAvailableSeatsChange()} instead of overwritten.
+     * @param flights Map: key -> changed Flight object <p> value -> changed columns
+     * @param changedPassengers Passengers with changed phone number
+     */
+    void updateChanged(Map<Flight, Set<Flight.Column>> flights, Collection<Passenger> changedPassengers);
+
+    void updatePassenger(Passenger passenger);
+
+    /**
+     * Stores passenger and sets its id
+     * @return Passenger id <p> -1 if passenger could not be added
+     */
+    int addPassenger(Passenger passenger);
+
+    List<Flight> getAllFlights();
+
+    /**
+     *
+     * @return Current state of flights with given ids, without passengers, ids of deleted flights are skipped
+     */
+    List<Flight> getFlightsByIds(Collection<Integer> flightIds);
+
+    /**
+     *
+     * @param originAirport IATA airport of origin code, upper case
+     * @param destinationAirport IATA airport of destination code, upper case
+     * @param includeOppositeDirection Should return also flights going from destination to origin
+     */
+    List<Flight> getAllFlightsOnRoute(String originAirport, String destinationAirport, boolean includeOppositeDirection);
+
+    /**
+     *
+     * @param originAirport IATA airport of origin code, upper case
+     */
+    List<Flight> getAllFlightsFromAirport(String originAirport);
+
+    List<Flight> getFlightsDepartingInNextHours(int hours);
+
+    /**
+     *
+     * @return Flights with at least <code>minimumSeats</code> available seats, most available first
+     */
+    List<Flight> getFlightsWithAvailableSeats(int minimumSeats);
+
+    /**
+     *
+     * @return Up to <code>count</code> flights with most available seats, most available first
+     */
+    List<Flight> getFlightsWithMostAvailableSeats(int count);
+
+    List<Passenger> getAllPassengers();
+
+    /**
+     *
+     * @param flightNumbers Upper case flight numbers
+     * @return Those of given flight numbers which are already used by stored flights
+     */
+    Set<String> getExistingFlightNumbers(Collection<String> flightNumbers);
+
+    /**
+     *
+     * @param candidates Passengers, usually not stored yet
+     * @return Stored passengers with the same name and surname as any of candidates
+     */
+    List<Passenger> getExistingPassengers(Collection<Passenger> candidates);
+
+    /**
+     *
+     * @param filter Flight criteria, <code>null</code> lists all flights
+     * @param after Last flight of previous page, <code>null</code> for the first page
+     * @param pageSize Maximum number of returned flights, positive
+     * @return Flights ordered by departure time and id, following <code>after</code>
+     */
+    List<Flight> getFlightsPage(FlightFilter filter, Flight after, int pageSize);
+
+    /**
+     *
+     * @param after Last passenger of previous page, <code>null</code> for the first page
+     * @param pageSize Maximum number of returned passengers, positive
+     * @return Passengers ordered by id, following <code>after</code>
+     */
+    List<Passenger> getPassengersPage(Passenger after, int pageSize);
+
+    /**
+     *
+     * @param fetchSize Number of flights read at once, positive
+     * @return Stream of flights in order of ids, which has to be closed
+     */
+    Stream<Flight> streamAllFlights(int fetchSize);
+
+    /**
+     *
+     * @param fetchSize Number of passengers read at once, positive
+     * @return Stream of passengers in order of ids, which has to be closed
+     */
+    Stream<Passenger> streamAllPassengers(int fetchSize);
+
+    /**
+     * Inserts booking without changing number of available seats
+     * @return Booking id <p> -1 if booking could not be added
+     */
+    int addPassengerToFlight(Passenger passenger, Flight flight, int seatNo);
+
+    /**
+     * Atomically takes one available seat from flight and books it for passenger
+     */
+    BookingResult bookSeat(Passenger passenger, Flight flight, int seatNo);
+
+    /**
+     * Atomically removes booking and gives its seat back to flight
+     * @return <code>true</code> if booking was removed <p> <code>false</code> if passenger had no booking on flight
+     */
+    boolean cancelBooking(Passenger passenger, Flight flight);
+
+    /**
+     * Removes booking without changing number of available seats
+     */
+    void removePassengerFromFlight(Passenger passenger, Flight flight);
+
+    /**
+     * Stores all flights or none of them, setting their ids
+     * @return Added flights ids, in order of given list
+     */
+    int[] addFlights(List<Flight> flights);
+
+    /**
+     * Stores all passengers or none of them, setting their ids
+     * @return Added passengers ids, in order of given list
+     */
+    int[] addPassengers(List<Passenger> passengers);
+
+    /**
+     * Stores all bookings of one flight or none of them, without changing number of available seats
+     * @return Booking ids, in iteration order of given map
+     */
+    int[] addBookings(Flight flight, Map<Passenger, Integer> passengersAndSeats);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,123 @@
+package lot;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects changes made by Flight and Passenger setters and writes them to database at once on {@link #commit()}.
+ * <p> While unit of work is active on a thread, setters called on that thread only record which fields changed.
+ * Commit writes one UPDATE per changed entity containing only changed columns, entities with the same set of changed
+ * columns are sent as a single JDBC batch and everything is written in one transaction.
+ * <pre>
+ * try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+ *     flight.setDepartureTime(departure);
+ *     flight.setEstimatedArrivalTime(arrival);
+ *     unitOfWork.commit();
+ * }
+ * </pre>
+ * Changes not committed when unit of work is closed are not written to database and changed fields of flights
+ * and passengers are restored to their values from before the change, so the objects can be used further.
+ */
+public class UnitOfWork implements AutoCloseable {
+    private static final ThreadLocal<UnitOfWork> current = new ThreadLocal<>();
+
+    // Changed objects with values from before their first uncommitted change, restored on close
+    private final Map<Flight, EnumMap<Flight.Column, Object>> changedFlights = new LinkedHashMap<>();
+    private final Map<Passenger, String> changedPassengers = new LinkedHashMap<>();
+
+    private UnitOfWork() {
+    }
+
+    /**
+     * Starts unit of work on current thread
+     * @return Started unit of work
+     * @throws IllegalStateException if unit of work is already active on current thread
+     */
+    public static UnitOfWork begin() throws IllegalStateException {
+        if (current.get() != null) throw new IllegalStateException("Unit of work is already active");
+        UnitOfWork unitOfWork = new UnitOfWork();
+        current.set(unitOfWork);
+        return unitOfWork;
+    }
+
+    /**
+     *
+     * @return Unit of work active on current thread <p> <code>null</code> if there is none
+     */
+    static UnitOfWork current() {
+        return current.get();
+    }
+
+    /**
+     *
+     * @param previous Value of column before the change
+     */
+    void flightChanged(Flight flight, Flight.Column column, Object previous) {
+        changedFlights.computeIfAbsent(flight, f -> new EnumMap<>(Flight.Column.class)).putIfAbsent(column, previous);
+    }
+
+    /**
+     *
+     * @param previousPhoneNumber Phone number before the change
+     */
+    void passengerChanged(Passenger passenger, String previousPhoneNumber) {
+        if (changedPassengers.putIfAbsent(passenger, previousPhoneNumber) == null) passenger.changeRecorded();
+    }
+
+    /**
+     *
+     * @return <code>true</code> if there are changes not written to database yet
+     */
+    public boolean hasChanges() {
+        return !changedFlights.isEmpty() || !changedPassengers.isEmpty();
+    }
+
+    /**
+     * Writes all recorded changes to database in a single transaction. Unit of work stays active for further changes.
+     * @throws RuntimeException if changes could not be written, database is left unchanged and changes stay recorded
+     */
+    public void commit() {
+        if (!hasChanges()) return;
+        Map<Flight, Set<Flight.Column>> columns = new LinkedHashMap<>();
+        for (Map.Entry<Flight, EnumMap<Flight.Column, Object>> entry : changedFlights.entrySet()) {
+            columns.put(entry.getKey(), entry.getValue().keySet());
+        }
+        Database.updateChanged(columns, changedPassengers.keySet());
+        for (Flight flight : changedFlights.keySet()) {
+            flight.changesWritten();
+        }
+        changedFlights.clear();
+        settlePassengers();
+    }
+
+    /**
+     * Ends unit of work, changes not committed are discarded and changed fields are restored
+     */
+    @Override
+    public void close() {
+        if (hasChanges()) System.out.println("Unit of work closed with uncommitted changes, changes discarded");
+        for (Map.Entry<Flight, EnumMap<Flight.Column, Object>> entry : changedFlights.entrySet()) {
+            for (Map.Entry<Flight.Column, Object> column : entry.getValue().entrySet()) {
+                entry.getKey().restore(column.getKey(), column.getValue());
+            }
+        }
+        for (Map.Entry<Passenger, String> entry : changedPassengers.entrySet()) {
+            entry.getKey().restorePhoneNumber(entry.getValue());
+        }
+        changedFlights.clear();
+        settlePassengers();
+        if (current.get() == this) current.remove();
+    }
+
+    /**
+     * Lets passengers be refreshed from database again, see {@link Passenger#refreshPhoneNumber(String)}
+     */
+    private void settlePassengers() {
+        for (Passenger passenger : changedPassengers.keySet()) {
+            passenger.changeSettled();
+        }
+        changedPassengers.clear();
+    }
+}
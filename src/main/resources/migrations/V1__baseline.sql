@@ -1,4 +1,5 @@
-CREATE TABLE `flights` (
+-- Schema as originally created by hand, IF NOT EXISTS keeps it a no-op on existing databases
+CREATE TABLE IF NOT EXISTS `flights` (
     `id` INT(10) UNSIGNED NOT NULL AUTO_INCREMENT,
     `flight_number` VARCHAR(10) NOT NULL DEFAULT '',
     `origin_airport` VARCHAR(5) NOT NULL DEFAULT '',
@@ -12,7 +13,7 @@ CREATE TABLE `flights` (
 );
 
 
-CREATE TABLE `passengers` (
+CREATE TABLE IF NOT EXISTS `passengers` (
     `id` INT(10) UNSIGNED NOT NULL AUTO_INCREMENT,
     `name` VARCHAR(50) NOT NULL DEFAULT '',
     `surname` VARCHAR(50) NOT NULL DEFAULT '',
@@ -21,7 +22,7 @@ CREATE TABLE `passengers` (
 );
 
 
-CREATE TABLE `bookings` (
+CREATE TABLE IF NOT EXISTS `bookings` (
     `booking_id` INT(10) UNSIGNED NOT NULL AUTO_INCREMENT,
     `flight_id` INT(10) UNSIGNED NOT NULL DEFAULT '0',
     `passenger_id` INT(10) UNSIGNED NOT NULL DEFAULT '0',
@@ -31,4 +32,4 @@ CREATE TABLE `bookings` (
     INDEX `passenger_id_FK` (`passenger_id`) USING BTREE,
     CONSTRAINT `flight_id_FK` FOREIGN KEY (`flight_id`) REFERENCES `flights` (`id`) ON UPDATE CASCADE ON DELETE CASCADE,
     CONSTRAINT `passenger_id_FK` FOREIGN KEY (`passenger_id`) REFERENCES `passengers` (`id`) ON UPDATE CASCADE ON DELETE CASCADE
-);
\ No newline at end of file
+);
@@ -0,0 +1,9 @@
+-- Indexes backing departure window, available seats and per-flight booking queries.
+-- Route (origin_airport, destination_airport) and bookings(passenger_id) indexes already exist since V1.
+ALTER TABLE `flights`
+    ADD INDEX `idx_departure_time` (`departure_time`) USING BTREE,
+    ADD INDEX `idx_available_seats` (`available_seats`) USING BTREE;
+
+
+ALTER TABLE `bookings`
+    ADD INDEX `idx_flight_id` (`flight_id`) USING BTREE;
@@ -0,0 +1,39 @@
+-- Bookings which would violate unique indexes added below. Duplicates were allowed before, so they are reported
+-- and have to be resolved by hand before any change is made. Seat numbers are compared as numbers, as they are stored below.
+SELECT `flight_id`, CAST(`seat_number` AS UNSIGNED) AS `seat`, GROUP_CONCAT(`booking_id`) AS `booking_ids`
+FROM `bookings`
+GROUP BY `flight_id`, `seat`
+HAVING COUNT(*) > 1;
+
+
+SELECT `flight_id`, `passenger_id`, GROUP_CONCAT(`booking_id`) AS `booking_ids`
+FROM `bookings`
+GROUP BY `flight_id`, `passenger_id`
+HAVING COUNT(*) > 1;
+
+
+-- Seat numbers which do not fit numeric column
+SELECT `booking_id`, `flight_id`, `seat_number`
+FROM `bookings`
+WHERE `seat_number` NOT REGEXP '^[0-9]{1,5}$' OR CAST(`seat_number` AS UNSIGNED) > 65535;
+
+
+-- Seat capacity is stored so flights loaded from database know their seat range,
+-- existing flights get it back from free seats plus booked seats.
+ALTER TABLE `flights`
+    ADD COLUMN `max_seats` SMALLINT(6) UNSIGNED NOT NULL DEFAULT '0' AFTER `available_seats`;
+
+
+UPDATE `flights` f
+SET f.`max_seats` = f.`available_seats` + (SELECT COUNT(*) FROM `bookings` b WHERE b.`flight_id` = f.`id`);
+
+
+-- Seat can be booked once per flight and passenger can hold one seat per flight,
+-- both enforced by database so concurrent bookings can not double-book.
+-- Numeric seat numbers make '7' and '07' the same seat. idx_flight_id is covered by idx_flight_seat prefix.
+ALTER TABLE `bookings`
+    MODIFY COLUMN `seat_number` SMALLINT(6) UNSIGNED NOT NULL DEFAULT '0',
+    ADD UNIQUE INDEX `idx_flight_seat` (`flight_id`, `seat_number`) USING BTREE,
+    ADD UNIQUE INDEX `idx_flight_passenger` (`flight_id`, `passenger_id`) USING BTREE,
+    DROP INDEX `idx_flight_passenger_seat`,
+    DROP INDEX `idx_flight_id`;
@@ -0,0 +1,5 @@
+-- Route lookups listed page by page are ordered by departure time,
+-- extending route index with departure_time lets them read one index range in order.
+ALTER TABLE `flights`
+    ADD INDEX `idx_route_departure` (`origin_airport`, `destination_airport`, `departure_time`) USING BTREE,
+    DROP INDEX `idx_route`;
@@ -0,0 +1,4 @@
+-- Passengers are looked up by name and surname (existence check before insert, bulk import deduplication),
+-- which scanned the whole table without an index.
+ALTER TABLE `passengers`
+    ADD INDEX `idx_name_surname` (`name`, `surname`) USING BTREE;
@@ -0,0 +1,13 @@
+-- Mutations made with change log enabled (-Dlot.db.changeLog=true) are recorded in the same transaction,
+-- so other application instances can apply them to their in-memory caches and indexes, see ChangeLogPoller.
+CREATE TABLE IF NOT EXISTS `change_log` (
+    `seq` BIGINT UNSIGNED NOT NULL AUTO_INCREMENT,
+    `change_type` VARCHAR(20) NOT NULL,
+    `flight_id` INT(10) UNSIGNED NULL,
+    `flight_number` VARCHAR(10) NULL,
+    `passenger_id` INT(10) UNSIGNED NULL,
+    `node_id` CHAR(36) NOT NULL,
+    `created_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (`seq`) USING BTREE,
+    INDEX `idx_created_at` (`created_at`) USING BTREE
+);
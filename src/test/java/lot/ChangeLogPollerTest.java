@@ -0,0 +1,215 @@
+package lot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeLogPollerTest {
+    private static final String LOCAL_NODE = "local";
+    private static final String OTHER_NODE = "other";
+
+    private final FakeChangeLog changeLog = new FakeChangeLog();
+    private final RecordingListener listener = new RecordingListener();
+    private long now = 1_000_000;
+    private ChangeLogPoller poller;
+    private Database database;
+
+    @BeforeEach
+    void setUp() {
+        database = new Database(new InMemoryStorage());
+        Database.addFlightListener(listener);
+        poller = new ChangeLogPoller(changeLog, 0, ChangeLogPoller.DEFAULT_POLL_INTERVAL_MILLIS, () -> now);
+    }
+
+    @AfterEach
+    void tearDown() {
+        poller.close();
+        Database.removeFlightListener(listener);
+        database.close();
+    }
+
+    @Test
+    void appliesContiguousChanges() {
+        changeLog.flightSaved(1, OTHER_NODE, 10, "LO10");
+        changeLog.flightSaved(2, OTHER_NODE, 11, "LO11");
+
+        assertEquals(2, poller.pollNow());
+        assertEquals(2, poller.getLastSequence());
+        assertEquals(List.of("LO10", "LO11"), listener.saved);
+
+        assertEquals(0, poller.pollNow());
+        assertEquals(2, poller.getAppliedChanges());
+    }
+
+    @Test
+    void waitsForMissingSequenceAndAppliesChangesAheadOnce() {
+        changeLog.flightSaved(1, OTHER_NODE, 10, "LO10");
+        changeLog.flightSaved(3, OTHER_NODE, 12, "LO12");
+
+        assertEquals(2, poller.pollNow());
+        assertEquals(1, poller.getLastSequence());
+
+        // Change 3 is read again while waiting for 2, but not applied again
+        assertEquals(0, poller.pollNow());
+        assertEquals(1, poller.getLastSequence());
+        assertEquals(List.of("LO10", "LO12"), listener.saved);
+
+        // Transaction of change 2 commits late
+        changeLog.flightSaved(2, OTHER_NODE, 11, "LO11");
+        assertEquals(1, poller.pollNow());
+        assertEquals(3, poller.getLastSequence());
+        assertEquals(List.of("LO10", "LO12", "LO11"), listener.saved);
+        assertEquals(3, poller.getAppliedChanges());
+    }
+
+    @Test
+    void skipsMissingSequenceAfterGapTimeout() {
+        changeLog.flightSaved(1, OTHER_NODE, 10, "LO10");
+        changeLog.flightSaved(3, OTHER_NODE, 12, "LO12");
+
+        poller.pollNow();
+        assertEquals(1, poller.getLastSequence());
+
+        now += ChangeLogPoller.GAP_TIMEOUT_MILLIS - 1;
+        poller.pollNow();
+        assertEquals(1, poller.getLastSequence());
+
+        now += 1;
+        poller.pollNow();
+        assertEquals(3, poller.getLastSequence());
+
+        // Rolled back change is never applied, following changes are applied normally
+        changeLog.flightSaved(4, OTHER_NODE, 13, "LO13");
+        assertEquals(1, poller.pollNow());
+        assertEquals(4, poller.getLastSequence());
+        assertEquals(List.of("LO10", "LO12", "LO13"), listener.saved);
+    }
+
+    @Test
+    void gapTimeoutStartsWhenGapIsFound() {
+        changeLog.flightSaved(1, OTHER_NODE, 10, "LO10");
+        changeLog.flightSaved(2, OTHER_NODE, 11, "LO11");
+        poller.pollNow();
+
+        // Time without gaps does not count towards timeout
+        now += ChangeLogPoller.GAP_TIMEOUT_MILLIS * 2;
+        changeLog.flightSaved(4, OTHER_NODE, 13, "LO13");
+        poller.pollNow();
+        assertEquals(2, poller.getLastSequence());
+    }
+
+    @Test
+    void skipsOwnDeletionsButReloadsOwnFlightChanges() {
+        changeLog.add(new Change(1, Change.Type.FLIGHT_DELETED, 10, "LO10", 0, LOCAL_NODE));
+        changeLog.add(new Change(2, Change.Type.FLIGHT_DELETED, 11, "LO11", 0, OTHER_NODE));
+        changeLog.flightSaved(3, LOCAL_NODE, 12, "LO12");
+        changeLog.add(new Change(4, Change.Type.BOOKINGS_CHANGED, 13, "LO13", 0, LOCAL_NODE));
+        // Flight deleted before its changes were read is skipped
+        changeLog.add(new Change(5, Change.Type.BOOKINGS_CHANGED, 14, "LO14", 0, OTHER_NODE));
+        changeLog.flights.remove(14);
+
+        assertEquals(5, poller.pollNow());
+        assertEquals(List.of("LO11"), listener.deleted);
+        assertEquals(List.of("LO12", "LO13"), listener.saved);
+        assertEquals(5, poller.getLastSequence());
+    }
+
+    @Test
+    void refreshesPassengersChangedByOtherInstances() {
+        changeLog.add(new Change(1, Change.Type.PASSENGER_SAVED, 0, null, 5, OTHER_NODE));
+        changeLog.add(new Change(2, Change.Type.PASSENGER_SAVED, 0, null, 6, LOCAL_NODE));
+        changeLog.add(new Change(3, Change.Type.PASSENGER_DELETED, 0, null, 7, OTHER_NODE));
+
+        poller.pollNow();
+        assertEquals(List.of(5), changeLog.refreshedSaved);
+        assertEquals(List.of(7), changeLog.refreshedDeleted);
+    }
+
+    @Test
+    void readsBacklogInBatches() {
+        int total = ChangeLogPoller.BATCH_SIZE + 10;
+        for (int i = 1; i <= total; i++) {
+            changeLog.flightSaved(i, OTHER_NODE, i, "LO" + i);
+        }
+
+        assertEquals(ChangeLogPoller.BATCH_SIZE, poller.pollNow());
+        assertEquals(10, poller.pollNow());
+        assertEquals(total, poller.getLastSequence());
+        assertEquals(total, listener.saved.size());
+    }
+
+    @Test
+    void rejectsIncorrectPollInterval() {
+        assertThrows(IllegalArgumentException.class, () -> new ChangeLogPoller(changeLog, 0, 0, () -> now));
+    }
+
+    private static class FakeChangeLog implements ChangeLog {
+        private final TreeMap<Long, Change> changes = new TreeMap<>();
+        private final Map<Integer, Flight> flights = new HashMap<>();
+        private final List<Integer> refreshedSaved = new ArrayList<>();
+        private final List<Integer> refreshedDeleted = new ArrayList<>();
+
+        void add(Change change) {
+            changes.put(change.sequence(), change);
+            if (change.flightId() != 0 && change.type() != Change.Type.FLIGHT_DELETED) {
+                Timestamp departure = Timestamp.valueOf("2030-01-01 10:00:00");
+                Timestamp arrival = Timestamp.valueOf("2030-01-01 12:00:00");
+                flights.put(change.flightId(), new Flight(change.flightId(), change.flightNumber(), "WAW", "JFK", departure, arrival, 100, 100));
+            }
+        }
+
+        void flightSaved(long sequence, String nodeId, int flightId, String flightNumber) {
+            add(new Change(sequence, Change.Type.FLIGHT_SAVED, flightId, flightNumber, 0, nodeId));
+        }
+
+        @Override
+        public List<Change> readChanges(long afterSequence, int limit) {
+            return changes.tailMap(afterSequence, false).values().stream().limit(limit).toList();
+        }
+
+        @Override
+        public String getNodeId() {
+            return LOCAL_NODE;
+        }
+
+        @Override
+        public List<Flight> getFlightsByIds(Collection<Integer> flightIds) {
+            return flightIds.stream().filter(flights::containsKey).map(flights::get).toList();
+        }
+
+        @Override
+        public void refreshPassengers(Collection<Integer> savedIds, Collection<Integer> deletedIds) {
+            refreshedSaved.addAll(savedIds);
+            refreshedDeleted.addAll(deletedIds);
+        }
+    }
+
+    private static class RecordingListener implements FlightListener {
+        private final List<String> saved = new ArrayList<>();
+        private final List<String> deleted = new ArrayList<>();
+
+        @Override
+        public void flightSaved(Flight flight) {
+            saved.add(flight.getFlightNumber());
+        }
+
+        @Override
+        public void flightDeleted(String flightNumber) {
+            deleted.add(flightNumber);
+        }
+
+        @Override
+        public void seatsChanged(Flight flight, int availableSeatsDelta) {
+        }
+    }
+}
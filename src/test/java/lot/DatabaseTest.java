@@ -0,0 +1,193 @@
+package lot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseTest {
+    private static final Timestamp DEPARTURE = Timestamp.valueOf("2030-06-01 08:00:00");
+    private static final Timestamp ARRIVAL = Timestamp.valueOf("2030-06-01 10:00:00");
+
+    private Database database;
+
+    @BeforeEach
+    void setUp() {
+        database = new Database(new InMemoryStorage());
+    }
+
+    @AfterEach
+    void tearDown() {
+        Database.setAvailabilityIndex(null);
+        Database.setDepartureIndex(null);
+        database.close();
+    }
+
+    @Test
+    void cachedFlightIsReloadedAfterBooking() {
+        Database.addFlights(List.of(Flight.unsaved("LO1", "WAW", "JFK", DEPARTURE, ARRIVAL, 10)));
+        Passenger passenger = Passenger.unsaved("Jan", "Kowalski", "123-456-7890");
+        Database.addPassengers(List.of(passenger));
+        assertEquals(10, Database.getFlight("LO1").getAvailableSeats());
+
+        // Booked through another object than the cached one
+        assertTrue(Database.bookSeat(passenger, Database.getStorage().getFlight("LO1"), 4).isBooked());
+        assertEquals(9, Database.getFlight("LO1").getAvailableSeats());
+
+        assertTrue(Database.cancelBooking(passenger, Database.getStorage().getFlight("LO1")));
+        assertEquals(10, Database.getFlight("LO1").getAvailableSeats());
+    }
+
+    @Test
+    void setterOfStaleFlightDoesNotRestoreBookedSeats() {
+        Database.addFlights(List.of(Flight.unsaved("LO1", "WAW", "JFK", DEPARTURE, ARRIVAL, 2)));
+        List<Passenger> passengers = List.of(Passenger.unsaved("Jan", "Kowalski", "123-456-7890"),
+                Passenger.unsaved("Anna", "Nowak", "123-456-7891"), Passenger.unsaved("Piotr", "Wisniewski", "123-456-7892"));
+        Database.addPassengers(passengers);
+        Database.setAvailabilityIndex(new AvailabilityIndex());
+        Flight stale = Database.getFlight("LO1");
+
+        // Both seats are taken through other objects of the same flight
+        assertTrue(Database.bookSeat(passengers.get(0), Database.getStorage().getFlight("LO1"), 1).isBooked());
+        assertTrue(Database.bookSeat(passengers.get(1), Database.getStorage().getFlight("LO1"), 2).isBooked());
+        stale.setDepartureTime(new Timestamp(DEPARTURE.getTime() + 3_600_000L));
+
+        assertEquals(0, Database.getStorage().getFlight("LO1").getAvailableSeats());
+        assertEquals(new Timestamp(DEPARTURE.getTime() + 3_600_000L), Database.getStorage().getFlight("LO1").getDepartureTime());
+        assertTrue(Database.getAvailabilityIndex().getFlightsWithAvailableSeats(1).isEmpty());
+        assertEquals(BookingResult.Status.FLIGHT_FULL, Database.bookSeat(passengers.get(2), stale, 3).getStatus());
+    }
+
+    @Test
+    void airportSettersNormalizeCodes() {
+        Flight flight = Flight.unsaved("LO1", "WAW", "JFK", DEPARTURE, ARRIVAL, 10);
+        Database.addFlights(List.of(flight));
+        Locale defaultLocale = Locale.getDefault();
+        // Upper case of i in Turkish locale is dotted I, which would not match any airport code
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            flight.setOriginAirport(" bio ");
+            flight.setDestinationAirport("cdg");
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+
+        assertEquals("BIO-CDG", flight.getRoute());
+        assertEquals("BIO-CDG", Database.getStorage().getFlight("LO1").getRoute());
+        assertEquals(List.of("LO1"), Database.getAllFlightsOnRoute("BIO-CDG", false).stream().map(Flight::getFlightNumber).toList());
+    }
+
+    /**
+     * Bookings and cancellations made while index is filled are neither lost nor counted twice
+     */
+    @Test
+    void indexFilledDuringConcurrentBookingsMatchesStorage() throws Exception {
+        int flightCount = 300;
+        int seats = 20;
+        List<Flight> flights = new ArrayList<>();
+        for (int i = 1; i <= flightCount; i++) {
+            flights.add(Flight.unsaved("LO" + i, "WAW", "JFK", DEPARTURE, ARRIVAL, seats));
+        }
+        Database.addFlights(flights);
+        List<Passenger> passengers = new ArrayList<>();
+        for (int i = 0; i < seats; i++) {
+            passengers.add(Passenger.unsaved("Name" + (char) ('A' + i), "Surname", "123-456-7890"));
+        }
+        Database.addPassengers(passengers);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 20; round++) {
+                AtomicBoolean running = new AtomicBoolean(true);
+                List<Future<?>> writers = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    Random random = new Random(round * 4L + t);
+                    writers.add(executor.submit(() -> {
+                        while (running.get()) {
+                            Flight flight = flights.get(random.nextInt(flightCount));
+                            Passenger passenger = passengers.get(random.nextInt(seats));
+                            if (random.nextBoolean()) Database.bookSeat(passenger, flight, 1 + random.nextInt(seats));
+                            else Database.cancelBooking(passenger, flight);
+                        }
+                    }));
+                }
+                try {
+                    Database.setAvailabilityIndex(new AvailabilityIndex());
+                } finally {
+                    running.set(false);
+                    for (Future<?> writer : writers) {
+                        writer.get();
+                    }
+                }
+                assertIndexMatchesStorage(flightCount);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Writes made while changed flights are read for the last time wait until the index is registered, so they reach it
+     */
+    @Test
+    void writesDuringLastRereadReachIndex() throws Exception {
+        Flight first = Flight.unsaved("LO1", "WAW", "JFK", DEPARTURE, ARRIVAL, 10);
+        Flight second = Flight.unsaved("LO2", "WAW", "JFK", DEPARTURE, ARRIVAL, 10);
+        Flight third = Flight.unsaved("LO3", "WAW", "JFK", DEPARTURE, ARRIVAL, 10);
+        Database.addFlights(List.of(first, second, third));
+        Timestamp rescheduled = new Timestamp(DEPARTURE.getTime() + 3_600_000L);
+        List<Thread> writers = new ArrayList<>();
+
+        DepartureIndex index = new DepartureIndex() {
+            private int saved;
+
+            @Override
+            public synchronized void flightSaved(Flight flight) {
+                super.flightSaved(flight);
+                saved++;
+                // LO1 changed while flights are loaded and again during the first reread, so it is read for the last time under lock
+                if (saved == 1 || saved == 4) first.setEstimatedArrivalTime(new Timestamp(ARRIVAL.getTime() + saved * 60_000L));
+                if (saved == 5) {
+                    Thread writer = new Thread(() -> {
+                        Database.deleteFlightFromDatabase("LO3");
+                        Database.addFlights(List.of(Flight.unsaved("LO4", "WAW", "JFK", DEPARTURE, ARRIVAL, 10)));
+                        second.setDepartureTime(rescheduled);
+                    });
+                    writers.add(writer);
+                    writer.start();
+                    try {
+                        writer.join(300);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        Database.setDepartureIndex(index);
+        assertEquals(1, writers.size());
+        writers.get(0).join();
+
+        List<Flight> departing = index.getDeparting(DEPARTURE, rescheduled);
+        assertEquals(List.of("LO1", "LO2", "LO4"), departing.stream().map(Flight::getFlightNumber).sorted().toList());
+        assertEquals(rescheduled, departing.stream().filter(flight -> flight.getFlightNumber().equals("LO2")).findFirst().orElseThrow().getDepartureTime());
+    }
+
+    private static void assertIndexMatchesStorage(int flightCount) {
+        List<Flight> indexed = Database.getAvailabilityIndex().getFlightsWithMostAvailableSeats(Integer.MAX_VALUE);
+        assertEquals(flightCount, indexed.size());
+        for (Flight flight : indexed) {
+            assertEquals(Database.getStorage().getFlight(flight.getFlightNumber()).getAvailableSeats(), flight.getAvailableSeats(), flight.getFlightNumber());
+        }
+    }
+}
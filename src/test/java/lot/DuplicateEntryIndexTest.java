@@ -0,0 +1,36 @@
+package lot;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Index names are read from MySQL error messages, so booking conflicts are told apart without database
+ */
+class DuplicateEntryIndexTest {
+
+    private static String index(String message) {
+        return JdbcStorage.duplicateEntryIndex(new SQLIntegrityConstraintViolationException(message, "23000", 1062));
+    }
+
+    @Test
+    void readsIndexWithAndWithoutTableName() {
+        assertEquals("idx_flight_seat", index("Duplicate entry '7-12' for key 'bookings.idx_flight_seat'"));
+        assertEquals("idx_flight_passenger", index("Duplicate entry '7-3' for key 'idx_flight_passenger'"));
+    }
+
+    @Test
+    void indexNameIsMatchedExactly() {
+        assertEquals("idx_flight_passenger_seat", index("Duplicate entry '7-3-12' for key 'bookings.idx_flight_passenger_seat'"));
+        // Duplicated value can contain anything, only the key clause is read
+        assertEquals("idx_flight_seat", index("Duplicate entry 'for key 'x'' for key 'bookings.idx_flight_seat'"));
+    }
+
+    @Test
+    void unexpectedMessage() {
+        assertNull(index("Deadlock found when trying to get lock"));
+        assertNull(index(null));
+    }
+}
@@ -0,0 +1,75 @@
+package lot;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightCacheTest {
+
+    private static Flight flight(String number) {
+        return new Flight(1, number, "WAW", "JFK", Timestamp.valueOf("2030-06-01 08:00:00"), Timestamp.valueOf("2030-06-01 10:00:00"), 10, 10);
+    }
+
+    @Test
+    void cachesFlightLoadedWithoutConcurrentInvalidation() {
+        FlightCache cache = new FlightCache();
+        Flight flight = flight("LO1");
+
+        assertTrue(cache.put(flight, cache.getGeneration("LO1")));
+        assertEquals("WAW-JFK", cache.get("lo1").getRoute());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void callersGetTheirOwnCopies() {
+        FlightCache cache = new FlightCache();
+        Flight flight = flight("LO1");
+        cache.put(flight, cache.getGeneration("LO1"));
+        flight.getDepartureTime().setTime(0);
+
+        Flight first = cache.get("LO1");
+        first.getEstimatedArrivalTime().setTime(0);
+        Flight second = cache.get("LO1");
+        assertNotSame(first, second);
+        assertEquals(Timestamp.valueOf("2030-06-01 08:00:00"), second.getDepartureTime());
+        assertEquals(Timestamp.valueOf("2030-06-01 10:00:00"), second.getEstimatedArrivalTime());
+    }
+
+    @Test
+    void refusesFlightInvalidatedWhileLoading() {
+        FlightCache cache = new FlightCache();
+        long generation = cache.getGeneration("LO1");
+        // Writer commits and invalidates after the reader read generation, so loaded flight may be stale
+        cache.invalidate("lo1");
+
+        assertFalse(cache.put(flight("LO1"), generation));
+        assertNull(cache.get("LO1"));
+
+        long cleared = cache.getGeneration("LO1");
+        cache.clear();
+        assertFalse(cache.put(flight("LO1"), cleared));
+        assertTrue(cache.put(flight("LO1"), cache.getGeneration("LO1")));
+    }
+
+    @Test
+    void invalidateRemovesCachedFlight() {
+        FlightCache cache = new FlightCache();
+        cache.put(flight("LO1"), cache.getGeneration("LO1"));
+        cache.invalidate("LO1");
+
+        assertNull(cache.get("LO1"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void expiredFlightIsEvicted() throws InterruptedException {
+        FlightCache cache = new FlightCache(10, 1);
+        cache.put(flight("LO1"), cache.getGeneration("LO1"));
+        Thread.sleep(5);
+
+        assertNull(cache.get("LO1"));
+        assertEquals(1, cache.getEvictions());
+    }
+}
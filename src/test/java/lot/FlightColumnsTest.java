@@ -0,0 +1,146 @@
+package lot;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightColumnsTest {
+    private static final Timestamp DEPARTURE = Timestamp.valueOf("2030-06-01 08:00:00");
+    private static final Timestamp ARRIVAL = Timestamp.valueOf("2030-06-01 10:30:00");
+
+    private static Flight flight(int id, String origin, String destination, int availableSeats) {
+        return new Flight(id, "LO" + id, origin, destination, DEPARTURE, ARRIVAL, availableSeats, 100);
+    }
+
+    @Test
+    void idSlotsMatchHashMapUnderRandomChanges() {
+        FlightColumns.IdSlots slots = new FlightColumns.IdSlots();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(11);
+
+        for (int i = 0; i < 200_000; i++) {
+            int id = 1 + random.nextInt(5000);
+            if (random.nextBoolean()) {
+                int slot = random.nextInt(1 << 20);
+                slots.put(id, slot);
+                expected.put(id, slot);
+            } else {
+                slots.remove(id);
+                expected.remove(id);
+            }
+        }
+
+        for (int id = 1; id <= 5000; id++) {
+            assertEquals(expected.getOrDefault(id, -1), slots.get(id), "slot of flight " + id);
+        }
+        assertEquals(-1, slots.get(0));
+        assertEquals(-1, slots.get(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void idSlotsGrowWithLiveEntries() {
+        FlightColumns.IdSlots slots = new FlightColumns.IdSlots();
+        int initialCapacity = slots.capacity();
+        for (int id = 1; id <= initialCapacity; id++) {
+            slots.put(id, id * 2);
+        }
+
+        // At most half of the table is used
+        assertTrue(slots.capacity() >= initialCapacity * 2);
+        for (int id = 1; id <= initialCapacity; id++) {
+            assertEquals(id * 2, slots.get(id));
+        }
+    }
+
+    @Test
+    void idSlotsReuseTableFilledWithRemovedEntries() {
+        FlightColumns.IdSlots slots = new FlightColumns.IdSlots();
+        int initialCapacity = slots.capacity();
+
+        // Ids are never reused, so every insert takes a new entry; table must not grow while few of them are live
+        for (int id = 1; id <= initialCapacity * 50; id++) {
+            slots.put(id, id);
+            if (id > 10) slots.remove(id - 10);
+        }
+
+        assertEquals(initialCapacity, slots.capacity());
+        for (int id = initialCapacity * 50 - 9; id <= initialCapacity * 50; id++) {
+            assertEquals(id, slots.get(id));
+        }
+        assertEquals(-1, slots.get(initialCapacity * 50 - 10));
+    }
+
+    @Test
+    void findsFlightsByRouteAndSeats() {
+        FlightColumns columns = new FlightColumns();
+        columns.load(List.of(flight(1, "WAW", "JFK", 10), flight(2, "JFK", "WAW", 50), flight(3, "WAW", "CDG", 50)).stream());
+
+        assertArrayEquals(new int[]{1, 2}, columns.find(new FlightFilter().route("WAW-JFK", true)));
+        assertArrayEquals(new int[]{1}, columns.find(new FlightFilter().route("WAW-JFK", false)));
+        assertArrayEquals(new int[]{2, 3}, columns.find(new FlightFilter().minimumSeats(20)));
+
+        columns.seatsChanged(flight(1, "WAW", "JFK", 10), 15);
+        assertArrayEquals(new int[]{1, 2, 3}, columns.find(new FlightFilter().minimumSeats(20)));
+        assertEquals(25, columns.hydrate(new int[]{1}).get(0).getAvailableSeats());
+        assertArrayEquals(new long[]{2, 30}, columns.getFlightDuration(3));
+    }
+
+    @Test
+    void compactsAfterMostFlightsAreDeleted() {
+        FlightColumns columns = new FlightColumns();
+        int count = 3000;
+        columns.load(IntStream.rangeClosed(1, count).mapToObj(id -> flight(id, id % 2 == 0 ? "WAW" : "JFK", "CDG", id % 100)));
+
+        // Deleting every flight except multiples of 3, compaction happens on the way
+        for (int id = 1; id <= count; id++) {
+            if (id % 3 != 0) columns.flightDeleted("LO" + id);
+        }
+
+        assertEquals(count / 3, columns.size());
+        int[] expected = IntStream.rangeClosed(1, count).filter(id -> id % 3 == 0).toArray();
+        assertArrayEquals(expected, columns.find(null));
+        assertArrayEquals(Arrays.stream(expected).filter(id -> id % 2 == 0).toArray(), columns.find(new FlightFilter().route("WAW-CDG", false)));
+        for (int id = 1; id <= count; id++) {
+            assertEquals(id % 3 == 0 ? (id % 2 == 0 ? "WAW-CDG" : "JFK-CDG") : null, columns.getRoute(id), "route of flight " + id);
+        }
+
+        // Slots moved by compaction are still found by id
+        columns.seatsChanged(flight(count, "WAW", "CDG", 0), 7);
+        assertEquals(count % 100 + 7, columns.hydrate(new int[]{count}).get(0).getAvailableSeats());
+        columns.flightSaved(flight(count + 1, "WAW", "JFK", 1));
+        assertEquals(count / 3 + 1, columns.size());
+        assertEquals("WAW-JFK", columns.getRoute(count + 1));
+    }
+
+    @Test
+    void hydrateSkipsDeletedFlights() {
+        FlightColumns columns = new FlightColumns();
+        columns.load(List.of(flight(1, "WAW", "JFK", 10), flight(2, "JFK", "WAW", 50)).stream());
+        columns.flightDeleted("lo1");
+
+        List<Flight> flights = columns.hydrate(new int[]{1, 2});
+        assertEquals(1, flights.size());
+        assertEquals("LO2", flights.get(0).getFlightNumber());
+        assertEquals("JFK-WAW", flights.get(0).getRoute());
+    }
+
+    @Test
+    void flightNumbersArePackedWithLeadingZeros() {
+        for (String number : List.of("LO1", "LO0012", "AA9999", "ZZ0", "BA123")) {
+            int packed = FlightColumns.packFlightNumber(number);
+            assertNotEquals(FlightColumns.INVALID_FLIGHT_NUMBER, packed);
+            assertEquals(number, FlightColumns.unpackFlightNumber(packed));
+        }
+        assertEquals("LO12", FlightColumns.unpackFlightNumber(FlightColumns.packFlightNumber("lo12")));
+        assertNotEquals(FlightColumns.packFlightNumber("LO12"), FlightColumns.packFlightNumber("LO012"));
+        assertEquals(FlightColumns.INVALID_FLIGHT_NUMBER, FlightColumns.packFlightNumber("LO12345"));
+    }
+}
@@ -0,0 +1,37 @@
+package lot;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryStorageTest extends StorageTest {
+
+    @Override
+    protected Storage createStorage() {
+        return new InMemoryStorage();
+    }
+
+    @Test
+    void passengerNamesAreComparedIgnoringCase() {
+        storage.addPassenger(Passenger.unsaved("Jan", "Kowalski", "123-456-7890"));
+
+        assertTrue(storage.doesPassengerExists("JAN", "kowalski"));
+        assertEquals("Jan", storage.getPassenger("jan", "KOWALSKI").getName());
+        assertEquals(1, storage.getExistingPassengers(List.of(Passenger.unsaved("jAN", "KoWaLsKi", "123-456-7890"))).size());
+    }
+
+    @Test
+    void flightNumberCanBeReusedAfterDelete() {
+        Timestamp departure = Timestamp.valueOf("2030-06-01 08:00:00");
+        Timestamp arrival = Timestamp.valueOf("2030-06-01 10:00:00");
+        int first = storage.addFlight(Flight.unsaved("LO1", "WAW", "JFK", departure, arrival, 10));
+        storage.deleteFlight("LO1");
+        int second = storage.addFlight(Flight.unsaved("LO1", "WAW", "CDG", departure, arrival, 10));
+
+        assertNotEquals(first, second);
+        assertEquals("WAW-CDG", storage.getFlight("LO1").getRoute());
+    }
+}
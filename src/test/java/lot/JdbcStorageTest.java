@@ -0,0 +1,28 @@
+package lot;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Runs against MySQL schema given by <code>-Dlot.db.url</code>, which has to name a test schema, as all its data is deleted
+ */
+@EnabledIfSystemProperty(named = "lot.db.url", matches = ".*test.*")
+class JdbcStorageTest extends StorageTest {
+
+    @Override
+    protected Storage createStorage() {
+        ConnectionPool pool = new ConnectionPool(System.getProperty("lot.db.url"), System.getProperty("lot.db.username", "root"),
+                System.getProperty("lot.db.password", ""));
+        JdbcStorage jdbcStorage = new JdbcStorage(pool);
+        try (PooledConnection connection = pool.borrow(); Statement statement = connection.getConnection().createStatement()) {
+            statement.executeUpdate("DELETE FROM bookings");
+            statement.executeUpdate("DELETE FROM passengers");
+            statement.executeUpdate("DELETE FROM flights");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not clean test schema", e);
+        }
+        return jdbcStorage;
+    }
+}
@@ -0,0 +1,83 @@
+package lot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 0; value < 8; value++) {
+            histogram.reset();
+            histogram.record(value);
+            assertEquals(value, histogram.getPercentile(100));
+        }
+    }
+
+    @Test
+    void valuesAreRoundedUpToBucketBound() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1000 is in [512, 1024), split into buckets of 64, its bucket is [960, 1023]
+        histogram.record(1000);
+        assertEquals(1023, histogram.getPercentile(50));
+
+        histogram.reset();
+        histogram.record(960);
+        assertEquals(1023, histogram.getPercentile(50));
+        histogram.reset();
+        histogram.record(959);
+        assertEquals(959, histogram.getPercentile(50));
+    }
+
+    @Test
+    void bucketBoundIsWithinOneEighthAboveValue() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(3);
+        for (int i = 0; i < 10_000; i++) {
+            long value = random.nextLong(Long.MAX_VALUE >>> random.nextInt(63));
+            histogram.reset();
+            histogram.record(value);
+            long bound = histogram.getPercentile(100);
+            assertTrue(bound >= value, () -> bound + " below " + value);
+            assertTrue(bound - value <= value / 8, () -> bound + " too far above " + value);
+        }
+    }
+
+    @Test
+    void extremeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+
+        histogram.reset();
+        histogram.record(-5);
+        assertEquals(0, histogram.getPercentile(100));
+        assertEquals(1, histogram.getCount());
+    }
+
+    @Test
+    void percentilesUseRankOfRecordedValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(99));
+
+        for (int i = 0; i < 99; i++) {
+            histogram.record(5);
+        }
+        histogram.record(1000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(5, histogram.getPercentile(0));
+        assertEquals(5, histogram.getPercentile(99));
+        assertEquals(1023, histogram.getPercentile(99.5));
+        assertEquals(1023, histogram.getPercentile(100));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(100.1));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(-1));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+    }
+}
@@ -0,0 +1,41 @@
+package lot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryMetricsTest {
+
+    @Test
+    void countsCallsRowsAndThrownErrors() {
+        QueryMetrics metrics = new QueryMetrics(0);
+        metrics.measure(QueryMetrics.Operation.GET_ALL_FLIGHTS, () -> List.of(1, 2, 3), List::size);
+        assertThrows(IllegalStateException.class, () -> metrics.measure(QueryMetrics.Operation.GET_ALL_FLIGHTS, () -> {
+            throw new IllegalStateException();
+        }));
+
+        QueryMetrics.OperationStats stats = metrics.get(QueryMetrics.Operation.GET_ALL_FLIGHTS);
+        assertEquals(2, stats.getCalls());
+        assertEquals(1, stats.getErrors());
+        assertEquals(3, stats.getRows());
+    }
+
+    @Test
+    void countsErrorsHandledByStorage() {
+        QueryMetrics metrics = new QueryMetrics(0);
+        // Storage logs exception and returns empty result instead of throwing
+        List<Integer> result = metrics.measure(QueryMetrics.Operation.GET_ALL_FLIGHTS, () -> {
+            QueryMetrics.errorHandled();
+            return List.<Integer>of();
+        }, List::size);
+        metrics.measure(QueryMetrics.Operation.UPDATE_FLIGHT, QueryMetrics::errorHandled);
+        metrics.measure(QueryMetrics.Operation.UPDATE_FLIGHT, () -> { });
+
+        assertTrue(result.isEmpty());
+        assertEquals(1, metrics.get(QueryMetrics.Operation.GET_ALL_FLIGHTS).getErrors());
+        assertEquals(2, metrics.get(QueryMetrics.Operation.UPDATE_FLIGHT).getCalls());
+        assertEquals(1, metrics.get(QueryMetrics.Operation.UPDATE_FLIGHT).getErrors());
+    }
+}
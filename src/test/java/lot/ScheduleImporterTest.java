@@ -0,0 +1,103 @@
+package lot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduleImporterTest {
+    private Database database;
+
+    @BeforeEach
+    void setUp() {
+        database = new Database(new InMemoryStorage());
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    private static BufferedReader lines(String... lines) {
+        return new BufferedReader(new StringReader(String.join("\n", lines)));
+    }
+
+    private static List<String> rejections(ImportReport report) {
+        return report.getRejections().stream().map(rejection -> rejection.line() + ": " + rejection.reason()).toList();
+    }
+
+    @Test
+    void importsFlightsAndReportsRejectedRows() throws IOException {
+        Database.addFlights(List.of(Flight.unsaved("LO9", "WAW", "JFK", Timestamp.valueOf("2030-06-01 08:00:00"),
+                Timestamp.valueOf("2030-06-01 10:00:00"), 10)));
+
+        // Chunk size 2 spreads rejections of every kind over several chunks
+        ImportReport report = new ScheduleImporter(2).importFlights(lines(
+                "flight_number,origin_airport,destination_airport,departure_time,estimated_arrival_time,max_seats",
+                "LO1,WAW,JFK,2030-06-01 08:00:00,2030-06-01 16:00:00,100",
+                "LO2,WAW,JFK,2030-06-01 08:00:00,2030-06-01 16:00:00",
+                "LO12345,WAW,JFK,2030-06-01 08:00:00,2030-06-01 16:00:00,100",
+                "",
+                "lo1,JFK,WAW,2030-06-02 08:00:00,2030-06-02 16:00:00,100",
+                "LO9,JFK,WAW,2030-06-02 08:00:00,2030-06-02 16:00:00,100",
+                " LO3 , WAW , CDG , 2030-06-03 08:00:00 , 2030-06-03 10:00:00 , 50 "));
+
+        assertEquals(6, report.getRowsRead());
+        assertEquals(2, report.getImported());
+        assertEquals(4, report.getRejected());
+        assertEquals(List.of(
+                "3: Expected 6 columns, got 5",
+                "4: Flight number is incorrect",
+                "6: Duplicate of earlier row",
+                "7: Flight with this number already exists"), rejections(report));
+
+        assertEquals("WAW-CDG", Database.getFlight("LO3").getRoute());
+        assertEquals("WAW-JFK", Database.getFlight("LO1").getRoute());
+    }
+
+    @Test
+    void importsPassengersIgnoringCaseOfDuplicateNames() throws IOException {
+        Database.addPassengers(List.of(Passenger.unsaved("Anna", "Nowak", "123-456-7890")));
+
+        ImportReport report = new ScheduleImporter(3).importPassengers(lines(
+                "name,surname,phone_number",
+                "Jan,Kowalski,123-456-7891",
+                "JAN,kowalski,123-456-7892",
+                "anna,NOWAK,123-456-7893",
+                ",Wisniewski,123-456-7894",
+                "Piotr,Wisniewski,12",
+                "Piotr,Wisniewski,123-456-7895"));
+
+        assertEquals(6, report.getRowsRead());
+        assertEquals(2, report.getImported());
+        assertEquals(List.of(
+                "3: Duplicate of earlier row",
+                "4: Such passenger already exists",
+                "5: Missing name or surname",
+                "6: Incorrect phone number"), rejections(report));
+        assertEquals("123-456-7891", Database.getPassenger("jan", "kowalski").getPhoneNumber());
+        assertTrue(Database.doesPassengerExists("Piotr", "Wisniewski"));
+    }
+
+    @Test
+    void lineNumbersCountFromFirstLineWithoutHeader() throws IOException {
+        ImportReport report = new ScheduleImporter(1).importPassengers(lines(
+                "Jan,Kowalski,123-456-7891",
+                "Jan"));
+
+        assertEquals(1, report.getImported());
+        assertEquals(List.of("2: Expected 3 columns, got 1"), rejections(report));
+    }
+
+    @Test
+    void rejectsIncorrectChunkSize() {
+        assertThrows(IllegalArgumentException.class, () -> new ScheduleImporter(0));
+    }
+}
@@ -0,0 +1,151 @@
+package lot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatMapTest {
+
+    private static Passenger passenger(int id) {
+        return new Passenger(id, "Name" + id, "Surname" + id, "+12025550101");
+    }
+
+    @Test
+    void assignsAndReleasesSeats() {
+        SeatMap seats = new SeatMap(10);
+        Passenger first = passenger(1);
+        Passenger second = passenger(2);
+
+        seats.assign(first, 3);
+        seats.assign(second, 7);
+
+        assertTrue(seats.isOccupied(3));
+        assertSame(second, seats.getPassenger(7));
+        assertEquals(3, seats.getSeat(1));
+        assertEquals(2, seats.getOccupiedCount());
+        assertEquals(8, seats.getFreeCount());
+        assertEquals(List.of(3, 7), seats.getOccupiedSeats());
+        assertEquals(1, seats.getFirstFreeSeat());
+
+        assertEquals(3, seats.remove(1));
+        assertEquals(-1, seats.remove(1));
+        assertFalse(seats.isOccupied(3));
+        assertEquals(-1, seats.getSeat(1));
+        assertEquals(9, seats.getFreeCount());
+    }
+
+    @Test
+    void reassigningMovesPassengerAndReplacesOccupant() {
+        SeatMap seats = new SeatMap(5);
+        Passenger first = passenger(1);
+        Passenger second = passenger(2);
+
+        seats.assign(first, 1);
+        seats.assign(first, 2);
+        assertFalse(seats.isOccupied(1));
+        assertEquals(2, seats.getSeat(1));
+
+        seats.assign(second, 2);
+        assertFalse(seats.contains(first));
+        assertEquals(2, seats.getSeat(2));
+        assertEquals(1, seats.getOccupiedCount());
+    }
+
+    @Test
+    void seatAboveCapacityGrowsMap() {
+        SeatMap seats = new SeatMap(2);
+        seats.assign(passenger(1), 5);
+
+        assertEquals(5, seats.getCapacity());
+        assertTrue(seats.isOccupied(5));
+        assertEquals(List.of(1, 2, 3, 4), seats.getFreeSeats());
+    }
+
+    @Test
+    void seatZeroIsListedAsOccupiedButNeverFree() {
+        SeatMap seats = new SeatMap(3);
+        Passenger passenger = passenger(1);
+        seats.assign(passenger, 0);
+
+        assertTrue(seats.isOccupied(0));
+        assertEquals(Map.of(passenger, 0), seats.toMap());
+        assertEquals(List.of(passenger), seats.getPassengers());
+        assertEquals(List.of(0), seats.getOccupiedSeats());
+        assertEquals(List.of(1, 2, 3), seats.getFreeSeats());
+        assertEquals(3, seats.getFreeCount());
+        assertEquals(1, seats.getFirstFreeSeat());
+    }
+
+    @Test
+    void rejectsSeatsOutOfColumnRange() {
+        SeatMap seats = new SeatMap(3);
+        assertThrows(IllegalArgumentException.class, () -> seats.assign(passenger(1), -1));
+        assertThrows(IllegalArgumentException.class, () -> seats.assign(passenger(1), 65536));
+        assertEquals(0, seats.getOccupiedCount());
+    }
+
+    @Test
+    void emptyMapGrowsWithBookedSeats() {
+        SeatMap seats = new SeatMap(300);
+        assertEquals(-1, seats.getSeat(1));
+        assertEquals(-1, seats.remove(1));
+        assertNull(seats.getPassenger(300));
+        assertEquals(300, seats.getFreeCount());
+
+        for (int id = 1; id <= 100; id++) {
+            seats.assign(passenger(id), 301 - id);
+        }
+        for (int id = 1; id <= 100; id++) {
+            assertEquals(301 - id, seats.getSeat(id));
+            assertEquals(id, seats.getPassenger(301 - id).getDbID());
+        }
+        assertEquals(200, seats.getFreeCount());
+
+        SeatMap loaded = SeatMap.of(300, seats.toMap());
+        assertEquals(seats.toMap(), loaded.toMap());
+        assertEquals(100, loaded.getOccupiedCount());
+    }
+
+    /**
+     * Random assignments and removals compared with HashMap, covering probe chains broken by backward shift deletion and rehashing
+     */
+    @Test
+    void passengerIndexMatchesHashMapUnderRandomChanges() {
+        int capacity = 500;
+        SeatMap seats = new SeatMap(capacity);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Map<Integer, Integer> passengerOnSeat = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 50_000; i++) {
+            // Ids from a small range, so the same passengers are assigned and removed many times
+            int id = 1 + random.nextInt(400);
+            if (random.nextInt(3) == 0) {
+                Integer seat = expected.remove(id);
+                assertEquals(seat == null ? -1 : seat, seats.remove(id));
+                if (seat != null) passengerOnSeat.remove(seat);
+            } else {
+                int seat = 1 + random.nextInt(capacity);
+                Integer previousSeat = expected.put(id, seat);
+                if (previousSeat != null) passengerOnSeat.remove(previousSeat);
+                Integer previousOccupant = passengerOnSeat.put(seat, id);
+                if (previousOccupant != null && previousOccupant != id) expected.remove(previousOccupant);
+                seats.assign(passenger(id), seat);
+            }
+        }
+
+        assertEquals(expected.size(), seats.getOccupiedCount());
+        assertEquals(capacity - expected.size(), seats.getFreeCount());
+        for (int id = 1; id <= 400; id++) {
+            assertEquals(expected.getOrDefault(id, -1), seats.getSeat(id), "seat of passenger " + id);
+        }
+        for (Map.Entry<Passenger, Integer> entry : seats.toMap().entrySet()) {
+            assertEquals(expected.get(entry.getKey().getDbID()), entry.getValue());
+        }
+    }
+}
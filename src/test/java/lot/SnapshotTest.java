@@ -0,0 +1,128 @@
+package lot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotTest {
+    @TempDir
+    Path directory;
+
+    private Database database;
+    private final Timestamp departure = Timestamp.valueOf("2030-06-01 08:00:00");
+    private final Timestamp arrival = Timestamp.valueOf("2030-06-01 10:00:00");
+
+    @BeforeEach
+    void setUp() {
+        database = new Database(new InMemoryStorage());
+    }
+
+    @AfterEach
+    void tearDown() {
+        Database.setAvailabilityIndex(null);
+        database.close();
+    }
+
+    @Test
+    void exportedSnapshotLoadsWithManifestsAndSharedPassengers() throws IOException {
+        Flight first = Flight.unsaved("LO1", "WAW", "JFK", departure, arrival, 3);
+        Flight second = Flight.unsaved("LO0002", "JFK", "WAW", departure, arrival, 5);
+        Flight empty = Flight.unsaved("BA3", "LHR", "CDG", departure, arrival, 1);
+        Database.addFlights(List.of(first, second, empty));
+        Passenger jan = Passenger.unsaved("Jan", "Kowalski", "123-456-7890");
+        Passenger anna = Passenger.unsaved("Za\u017C\u00F3\u0142\u0107", "G\u0119\u015Bl\u0105", "123-456-7891");
+        Passenger unbooked = Passenger.unsaved("Piotr", "Nowak", "123-456-7892");
+        Database.addPassengers(List.of(jan, anna, unbooked));
+        assertTrue(Database.bookSeat(jan, first, 1).isBooked());
+        assertTrue(Database.bookSeat(anna, first, 3).isBooked());
+        assertTrue(Database.bookSeat(jan, second, 5).isBooked());
+
+        Path file = directory.resolve("lot.snapshot");
+        long before = System.currentTimeMillis();
+        assertEquals(3 + 3 + 3, Snapshot.export(file));
+        Snapshot snapshot = Snapshot.load(file);
+
+        assertEquals(0, snapshot.getChangeSequence());
+        assertTrue(snapshot.getCreatedAt().getTime() >= before);
+        assertEquals(3, snapshot.getBookingCount());
+        assertEquals(List.of("Jan", "Za\u017C\u00F3\u0142\u0107", "Piotr"), snapshot.getPassengers().stream().map(Passenger::getName).toList());
+
+        Map<String, Flight> flights = snapshot.getFlights().stream().collect(Collectors.toMap(Flight::getFlightNumber, flight -> flight));
+        assertEquals(3, flights.size());
+        Flight loaded = flights.get("LO1");
+        assertEquals(first.getDbID(), loaded.getDbID());
+        assertEquals("WAW-JFK", loaded.getRoute());
+        assertEquals(departure, loaded.getDepartureTime());
+        assertEquals(arrival, loaded.getEstimatedArrivalTime());
+        assertEquals(1, loaded.getAvailableSeats());
+        assertEquals(3, loaded.getMaxNumberOfSeats());
+        assertEquals(Map.of("Jan", 1, "Za\u017C\u00F3\u0142\u0107", 3), names(loaded.getPassengersAndSeats()));
+        assertEquals(4, flights.get("LO0002").getAvailableSeats());
+        assertTrue(flights.get("BA3").getPassengersAndSeats().isEmpty());
+
+        // The same passenger object is shared by manifests and passenger list
+        Passenger janOnFirst = passengerNamed(flights.get("LO1"), "Jan");
+        assertSame(janOnFirst, passengerNamed(flights.get("LO0002"), "Jan"));
+        assertTrue(snapshot.getPassengers().stream().anyMatch(passenger -> passenger == janOnFirst));
+    }
+
+    @Test
+    void indexIsFilledFromSnapshot() throws IOException {
+        Flight first = Flight.unsaved("LO1", "WAW", "JFK", departure, arrival, 3);
+        Flight second = Flight.unsaved("LO2", "JFK", "WAW", departure, arrival, 5);
+        Database.addFlights(List.of(first, second));
+        Path file = directory.resolve("lot.snapshot");
+        Snapshot.export(file);
+        Snapshot snapshot = Snapshot.load(file);
+
+        Database.setAvailabilityIndex(new AvailabilityIndex(), snapshot);
+        assertEquals(List.of("LO2", "LO1"), mostAvailable());
+
+        // Index registered after loading snapshot follows later changes
+        Database.deleteFlightFromDatabase("LO1");
+        Database.addFlights(List.of(Flight.unsaved("LO3", "WAW", "CDG", departure, arrival, 9)));
+        assertEquals(List.of("LO3", "LO2"), mostAvailable());
+    }
+
+    @Test
+    void loadRejectsFileWhichIsNotSnapshot() throws IOException {
+        Path file = directory.resolve("other.bin");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        assertThrows(IOException.class, () -> Snapshot.load(file));
+    }
+
+    @Test
+    void loadRejectsTruncatedSnapshot() throws IOException {
+        Database.addFlights(List.of(Flight.unsaved("LO1", "WAW", "JFK", departure, arrival, 3)));
+        Path file = directory.resolve("lot.snapshot");
+        Snapshot.export(file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 6));
+
+        assertThrows(IOException.class, () -> Snapshot.load(file));
+    }
+
+    private static List<String> mostAvailable() {
+        return Database.getAvailabilityIndex().getFlightsWithMostAvailableSeats(5).stream().map(Flight::getFlightNumber).toList();
+    }
+
+    private static Map<String, Integer> names(Map<Passenger, Integer> passengersAndSeats) {
+        return passengersAndSeats.entrySet().stream().collect(Collectors.toMap(entry -> entry.getKey().getName(), Map.Entry::getValue));
+    }
+
+    private static Passenger passengerNamed(Flight flight, String name) {
+        return flight.getPassengersAndSeats().keySet().stream().filter(passenger -> passenger.getName().equals(name)).findFirst().orElseThrow();
+    }
+}
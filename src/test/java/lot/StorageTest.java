@@ -0,0 +1,178 @@
+package lot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour shared by all storage engines, run by subclass for each of them
+ */
+abstract class StorageTest {
+    private static final long HOUR = 3_600_000L;
+    private static final Timestamp BASE = Timestamp.valueOf("2030-06-01 08:00:00");
+
+    protected Storage storage;
+
+    protected abstract Storage createStorage();
+
+    @BeforeEach
+    void createStorageUnderTest() {
+        storage = createStorage();
+    }
+
+    @AfterEach
+    void closeStorage() {
+        storage.close();
+    }
+
+    private static Timestamp at(long hours) {
+        return new Timestamp(BASE.getTime() + hours * HOUR);
+    }
+
+    private static Flight flight(String number, String origin, String destination, long departureHours) {
+        return Flight.unsaved(number, origin, destination, at(departureHours), at(departureHours + 2), 3);
+    }
+
+    /**
+     * Flights with several equal departure times, added out of departure order
+     */
+    private List<Flight> addFlightsWithEqualDepartures() {
+        List<Flight> flights = List.of(
+                flight("LO1", "WAW", "JFK", 5),
+                flight("LO2", "JFK", "WAW", 1),
+                flight("LO3", "WAW", "JFK", 1),
+                flight("LO4", "WAW", "CDG", 1),
+                flight("LO5", "WAW", "JFK", 3),
+                flight("LO6", "JFK", "WAW", 3),
+                flight("LO7", "WAW", "JFK", 1),
+                flight("LO8", "WAW", "JFK", 0));
+        storage.addFlights(flights);
+        return flights;
+    }
+
+    private List<Flight> readAllPages(FlightFilter filter, int pageSize) {
+        List<Flight> result = new ArrayList<>();
+        Flight after = null;
+        while (true) {
+            List<Flight> page = storage.getFlightsPage(filter, after, pageSize);
+            assertTrue(page.size() <= pageSize);
+            result.addAll(page);
+            if (page.size() < pageSize) return result;
+            after = page.get(page.size() - 1);
+        }
+    }
+
+    private static List<String> expectedOrder(List<Flight> flights, Predicate<Flight> filter) {
+        return flights.stream().filter(filter)
+                .sorted(Comparator.comparing(Flight::getDepartureTime).thenComparingInt(Flight::getDbID))
+                .map(Flight::getFlightNumber).toList();
+    }
+
+    private static List<String> numbers(List<Flight> flights) {
+        return flights.stream().map(Flight::getFlightNumber).toList();
+    }
+
+    @Test
+    void flightsPagesDoNotSkipOrRepeatFlightsWithEqualDepartureTime() {
+        List<Flight> flights = addFlightsWithEqualDepartures();
+        List<String> expected = expectedOrder(flights, flight -> true);
+
+        for (int pageSize = 1; pageSize <= flights.size() + 1; pageSize++) {
+            assertEquals(expected, numbers(readAllPages(null, pageSize)), "page size " + pageSize);
+        }
+    }
+
+    @Test
+    void pageBoundaryInsideGroupOfEqualDepartureTimes() {
+        List<Flight> flights = addFlightsWithEqualDepartures();
+        List<String> expected = expectedOrder(flights, flight -> true);
+
+        // Second flight departing at hour 1 ends the page, the next page has to start with the third one
+        List<Flight> first = storage.getFlightsPage(null, null, 3);
+        assertEquals(expected.subList(0, 3), numbers(first));
+        List<Flight> second = storage.getFlightsPage(null, first.get(2), 3);
+        assertEquals(expected.subList(3, 6), numbers(second));
+        assertEquals(second.get(0).getDepartureTime(), first.get(2).getDepartureTime());
+    }
+
+    @Test
+    void filteredFlightsPages() {
+        List<Flight> flights = addFlightsWithEqualDepartures();
+        FlightFilter filter = new FlightFilter().route("WAW-JFK", true).departingBetween(at(1), at(3));
+        List<String> expected = expectedOrder(flights, flight -> !flight.getRoute().equals("WAW-CDG")
+                && !flight.getDepartureTime().before(at(1)) && !flight.getDepartureTime().after(at(3)));
+
+        assertEquals(List.of("LO2", "LO3", "LO7", "LO5", "LO6"), expected);
+        for (int pageSize = 1; pageSize <= expected.size() + 1; pageSize++) {
+            assertEquals(expected, numbers(readAllPages(filter, pageSize)), "page size " + pageSize);
+        }
+    }
+
+    @Test
+    void bookSeatReportsWhyBookingFailed() {
+        Flight flight = Flight.unsaved("LO100", "WAW", "JFK", at(0), at(2), 2);
+        storage.addFlights(List.of(flight));
+        Passenger first = Passenger.unsaved("Jan", "Kowalski", "123-456-7890");
+        Passenger second = Passenger.unsaved("Anna", "Nowak", "123-456-7891");
+        Passenger third = Passenger.unsaved("Piotr", "Wisniewski", "123-456-7892");
+        storage.addPassengers(List.of(first, second, third));
+
+        BookingResult booked = storage.bookSeat(first, flight, 1);
+        assertTrue(booked.isBooked());
+        assertTrue(booked.getBookingId() > 0);
+        assertEquals(BookingResult.Status.ALREADY_BOOKED, storage.bookSeat(first, flight, 2).getStatus());
+        assertEquals(BookingResult.Status.SEAT_TAKEN, storage.bookSeat(second, flight, 1).getStatus());
+        assertTrue(storage.bookSeat(second, flight, 2).isBooked());
+        assertEquals(BookingResult.Status.FLIGHT_FULL, storage.bookSeat(third, flight, 3).getStatus());
+        assertEquals(0, storage.getFlight("LO100").getAvailableSeats());
+
+        assertTrue(storage.cancelBooking(first, flight));
+        assertFalse(storage.cancelBooking(first, flight));
+        assertEquals(1, storage.getFlight("LO100").getAvailableSeats());
+        assertTrue(storage.bookSeat(third, flight, 1).isBooked());
+    }
+
+    @Test
+    void bookSeatRejectsPassengerWhichIsNotStored() {
+        Flight flight = Flight.unsaved("LO100", "WAW", "JFK", at(0), at(2), 2);
+        storage.addFlights(List.of(flight));
+        Passenger missing = new Passenger(Integer.MAX_VALUE, "Jan", "Kowalski", "123-456-7890");
+
+        assertThrows(IllegalArgumentException.class, () -> storage.bookSeat(missing, flight, 1));
+        assertEquals(2, storage.getFlight("LO100").getAvailableSeats());
+    }
+
+    @Test
+    void bookSeatReportsFlightWhichIsNotStored() {
+        Passenger passenger = Passenger.unsaved("Jan", "Kowalski", "123-456-7890");
+        storage.addPassengers(List.of(passenger));
+        Flight missing = new Flight(Integer.MAX_VALUE, "LO100", "WAW", "JFK", at(0), at(2), 2, 2);
+
+        assertEquals(BookingResult.Status.FLIGHT_NOT_FOUND, storage.bookSeat(passenger, missing, 1).getStatus());
+    }
+
+    @Test
+    void updateFlightKeepsSeatsBookedMeanwhile() {
+        Flight flight = Flight.unsaved("LO100", "WAW", "JFK", at(0), at(2), 2);
+        storage.addFlights(List.of(flight));
+        Passenger passenger = Passenger.unsaved("Jan", "Kowalski", "123-456-7890");
+        storage.addPassengers(List.of(passenger));
+        assertTrue(storage.bookSeat(passenger, flight, 1).isBooked());
+
+        // Object read before the booking still has both seats available
+        storage.updateFlight(new Flight(flight.getDbID(), "LO100", "WAW", "CDG", at(1), at(3), 2, 2));
+
+        Flight stored = storage.getFlight("LO100");
+        assertEquals("WAW-CDG", stored.getRoute());
+        assertEquals(at(1), stored.getDepartureTime());
+        assertEquals(1, stored.getAvailableSeats());
+    }
+}
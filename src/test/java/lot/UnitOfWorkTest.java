@@ -0,0 +1,90 @@
+package lot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnitOfWorkTest {
+    private static final Timestamp DEPARTURE = Timestamp.valueOf("2030-06-01 08:00:00");
+    private static final Timestamp ARRIVAL = Timestamp.valueOf("2030-06-01 10:00:00");
+
+    private Database database;
+    private Passenger passenger;
+
+    @BeforeEach
+    void setUp() {
+        database = new Database(new InMemoryStorage());
+        passenger = Passenger.unsaved("Jan", "Kowalski", "123-456-7890");
+        Database.addPassengers(List.of(passenger));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void refreshDoesNotOverwritePendingPhoneNumber() {
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            passenger.setPhoneNumber("123-456-7891");
+            // Another object of the same row is written meanwhile, e.g. read before the change
+            Database.updatePassenger(new Passenger(passenger.getDbID(), "Jan", "Kowalski", "123-456-7899"));
+            passenger.refreshPhoneNumber("123-456-7899");
+            assertEquals("123-456-7891", passenger.getPhoneNumber());
+
+            unitOfWork.commit();
+        }
+        assertEquals("123-456-7891", passenger.getPhoneNumber());
+
+        // Committed passenger is refreshed again
+        passenger.refreshPhoneNumber("123-456-7892");
+        assertEquals("123-456-7892", passenger.getPhoneNumber());
+    }
+
+    @Test
+    void closeRestoresUncommittedChanges() {
+        Flight flight = Flight.unsaved("LO1", "WAW", "JFK", DEPARTURE, ARRIVAL, 10);
+        Database.addFlights(List.of(flight));
+
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            flight.setDestinationAirport("CDG");
+            flight.setDestinationAirport("LHR");
+            flight.setDepartureTime(Timestamp.valueOf("2030-06-01 09:00:00"));
+            flight.setAvailableSeats(4);
+            passenger.setPhoneNumber("123-456-7891");
+            assertTrue(unitOfWork.hasChanges());
+        }
+
+        assertEquals("WAW-JFK", flight.getRoute());
+        assertEquals(DEPARTURE, flight.getDepartureTime());
+        assertEquals(10, flight.getAvailableSeats());
+        assertEquals("123-456-7890", passenger.getPhoneNumber());
+        Flight stored = Database.getStorage().getFlight("LO1");
+        assertEquals("WAW-JFK", stored.getRoute());
+        assertEquals(10, stored.getAvailableSeats());
+    }
+
+    @Test
+    void commitDoesNotUndoSeatsBookedMeanwhile() {
+        Flight flight = Flight.unsaved("LO1", "WAW", "JFK", DEPARTURE, ARRIVAL, 10);
+        Database.addFlights(List.of(flight));
+
+        try (UnitOfWork unitOfWork = UnitOfWork.begin()) {
+            flight.setDestinationAirport("CDG");
+            flight.setAvailableSeats(8);
+            // Booked through another object of the same flight before commit
+            assertTrue(Database.bookSeat(passenger, Database.getStorage().getFlight("LO1"), 1).isBooked());
+            unitOfWork.commit();
+        }
+
+        Flight stored = Database.getStorage().getFlight("LO1");
+        assertEquals("WAW-CDG", stored.getRoute());
+        assertEquals(7, stored.getAvailableSeats());
+        assertEquals(8, flight.getAvailableSeats());
+    }
+}